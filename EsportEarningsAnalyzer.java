@@ -3,24 +3,75 @@ import javax.swing.border.AbstractBorder;
 import javax.swing.border.Border;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
-import java.awt.image.BufferedImage;
+import java.awt.image.*;
 import java.io.*;
 import java.text.DecimalFormat;
 import java.util.*;
 import java.util.List;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import org.w3c.dom.NodeList;
 
 public class EsportEarningsAnalyzer extends JFrame {
 
+    // CSV columns: IdNo,TotalMoney,GameName,Genre,PlayerNo,TournamentNo,Top_Country,Top_Country_Earnings,Releaseyear
+    static final int COL_ID_NO = 0;
+    static final int COL_TOTAL_MONEY = 1;
+    static final int COL_GAME_NAME = 2;
+    static final int COL_GENRE = 3;
+    static final int COL_PLAYER_NO = 4;
+    static final int COL_TOURNAMENT_NO = 5;
+    static final int COL_TOP_COUNTRY = 6;
+    static final int COL_TOP_COUNTRY_EARNINGS = 7;
+    static final int COL_RELEASE_YEAR = 8;
+
     // ---------------- Data Fields ----------------
-    private File selectedFile;
-    // Aggregated data using GameName
-    private Map<String, Double> earningsMap;
-    private BufferedImage chartImage;
+    // Files behind the current dataset, in the order they were merged
+    private List<File> selectedFiles = Collections.emptyList();
+    // Every column of the last loaded files, before the row filter
+    private EarningsDataset loadedDataset;
+    // The rows that pass the row filter; the single source for aggregation
+    private EarningsDataset dataset;
+    // Null shows every row; read by the load and follow threads
+    private volatile RowFilter rowFilter;
+    // Matched-row count and timing shown in the summary; empty without a filter
+    private String filterReport = "";
+    private FilterTask filterTask;
+    private JTextField filterInput;
+    // Approximate loads keep a fixed-size sketch instead of the rows; dataset is then null
+    private boolean approximate = false;
+    private EarningsSketch sketch;
+    private JButton approximateBtn;
+    // Aggregated data for the current grouping (GameName unless a cube grouping is selected)
+    private EarningsTable earningsMap;
+    // Empty means group by GameName; otherwise a combination of cube dimensions
+    private Set<EarningsCube.Dimension> grouping = Collections.emptySet();
+    // Background load in progress, if any
+    private FileLoadTask loadTask;
+    // Per-file rows and timings shown in the summary; empty for a single file
+    private String loadReport = "";
+    // Follows rows appended to a single loaded file; null when not following
+    private TailFollower tailFollower;
+    private boolean following = false;
+    // Writes dataset snapshots after a full parse without holding up the chart
+    private final java.util.concurrent.Executor snapshotWriter = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     // ---------------- Panels for Chart and Summary/Legend ----------------
     private JPanel chartPanel;
@@ -29,14 +80,35 @@ public class EsportEarningsAnalyzer extends JFrame {
     private JPanel legendPanel;
     // Using CardLayout to swap between summary and legend
     private JPanel eastPanel;
-    // Stores references to individual legend items for later hover updates
-    private List<JPanel> legendItemPanels = new ArrayList<>();
+    // Virtualized legend: the list only lays out and paints the rows in view
+    private JLabel legendHeader;
+    private JComboBox<String> legendSortCombo;
+    private final LegendModel legendModel = new LegendModel();
+    private JList<LegendEntry> legendList;
+    // Slice currently highlighted in the legend, or -1
+    private int hoveredLegendSlice = -1;
 
     // Donut chart panel
     private DonutChartPanel pieChartPanel;
+    // Coalesces control changes into at most one background recompute per frame
+    private final RecomputeScheduler<FilterQuery, ChartViewModel> recomputeScheduler =
+            new RecomputeScheduler<>("chart-recompute", EsportEarningsAnalyzer::buildViewModel, this::applyViewModel);
+    // Last applied view model; image export renders from it on demand
+    private ChartViewModel exportView;
+
+    // ------------- Image Export -------------
+    // Chart pages are laid out in these design units and scaled to the export resolution
+    static final int EXPORT_WIDTH = 800;
+    static final int EXPORT_HEIGHT = 600;
+    // {width, height, dpi}
+    private static final int[][] EXPORT_PRESETS = {
+            {800, 600, 96}, {1600, 1200, 192}, {3300, 2475, 300}, {9900, 7425, 300}};
+    private static final String[] EXPORT_PRESET_NAMES = {
+            "Screen (800 x 600, 96 DPI)", "Retina (1600 x 1200, 192 DPI)",
+            "Print 11 in (3300 x 2475, 300 DPI)", "Poster 33 in (9900 x 7425, 300 DPI)"};
 
     // Chart colors
-    private Color[] CHART_COLORS = {
+    private static final Color[] CHART_COLORS = {
         new Color(70, 130, 180),
         new Color(255, 99, 71),
         new Color(50, 205, 50),
@@ -72,9 +144,11 @@ public class EsportEarningsAnalyzer extends JFrame {
 
     // ------------- Control Components -------------
     private JButton importBtn;
+    private JButton followBtn;
     private JButton exportBtn;
     private JButton toggleSummaryBtn;
     private JButton toggleOthersBtn;
+    private JComboBox<String> groupByCombo;
     private JSlider topNSlider;
     private JLabel topNValueLabel;
     private JPanel manualThresholdPanel;
@@ -84,11 +158,33 @@ public class EsportEarningsAnalyzer extends JFrame {
     private JButton exportJPEGBtn;
     private JButton exportPNGBtn;
     private JLabel errorMessageLabel;
+    private JPanel loadProgressPanel;
+    private JProgressBar loadProgressBar;
+
+    // ------------- Timeline Playback -------------
+    private JButton timelineBtn;
+    private JPanel timelinePanel;
+    private JSlider timelineSlider;
+    private JLabel timelineYearLabel;
+    private JButton timelinePlayBtn;
+    private javax.swing.Timer timelinePlayer;
+    // When on, the chart shows only entries released up to timelineYear
+    private boolean timelineMode = false;
+    private int timelineYear;
 
     // ------------- Filtering Variables -------------
     private boolean showOthers = false;
     private int maxDisplay = 10;
     private double threshold = 0.0;
+    // Threshold mode shows at most this many slices; the rest above the threshold become "Other"
+    static final int MAX_THRESHOLD_SLICES = 200;
+
+    // ------------- Title Search -------------
+    private JTextField searchInput;
+    private final DefaultListModel<TitleSearchIndex.Match> searchResults = new DefaultListModel<>();
+    private JList<TitleSearchIndex.Match> searchList;
+    private JPopupMenu searchPopup;
+    static final int SEARCH_RESULTS = 10;
 
     // Background image loaded from the classpath.
     private BufferedImage backgroundImage;
@@ -123,6 +219,18 @@ public class EsportEarningsAnalyzer extends JFrame {
         contentPane.setOpaque(false);
         setContentPane(contentPane);
 
+        // F12 toggles the performance overlay drawn on the glass pane.
+        MetricsOverlay metricsOverlay = new MetricsOverlay();
+        setGlassPane(metricsOverlay);
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
+                .put(KeyStroke.getKeyStroke(KeyEvent.VK_F12, 0), "toggleMetrics");
+        getRootPane().getActionMap().put("toggleMetrics", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                metricsOverlay.setVisible(!metricsOverlay.isVisible());
+            }
+        });
+
         // ---------------- Header Panel ----------------
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.setOpaque(false);
@@ -154,6 +262,25 @@ public class EsportEarningsAnalyzer extends JFrame {
         importBtn.addActionListener(e -> openFile());
         controlsPanel.add(importBtn);
 
+        followBtn = createButton("Follow File");
+        followBtn.setEnabled(false);
+        followBtn.addActionListener(e -> {
+            following = !following;
+            followBtn.setText(following ? "Stop Following" : "Follow File");
+            if (following) startFollowing();
+            else stopFollowing();
+        });
+        controlsPanel.add(followBtn);
+
+        approximateBtn = createButton("Approximate");
+        approximateBtn.setToolTipText("Load huge files in fixed memory: top titles and distinct counts are estimated");
+        approximateBtn.addActionListener(e -> {
+            approximate = !approximate;
+            approximateBtn.setText(approximate ? "Exact" : "Approximate");
+            if (!selectedFiles.isEmpty()) processFiles(selectedFiles);
+        });
+        controlsPanel.add(approximateBtn);
+
         exportBtn = createButton("Export Data");
         exportBtn.setEnabled(false);
         exportBtn.addActionListener(e -> exportOptionsPanel.setVisible(!exportOptionsPanel.isVisible()));
@@ -177,23 +304,44 @@ public class EsportEarningsAnalyzer extends JFrame {
             if (showOthers) {
                 toggleOthersBtn.setText("Hide Others");
                 manualThresholdPanel.setVisible(true);
-                double newMax = computeThresholdSliderMax(earningsMap);
-                topNSlider.setMaximum((int)newMax);
-                threshold = newMax / 2.0;
-                topNSlider.setValue((int)threshold);
-                topNValueLabel.setText(formatCurrency(threshold));
-                thresholdInput.setText(String.valueOf(threshold));
+                resetThresholdRange();
             } else {
                 toggleOthersBtn.setText("Show Others");
                 manualThresholdPanel.setVisible(false);
                 topNSlider.setMaximum(20);
                 topNSlider.setValue(maxDisplay);
                 topNValueLabel.setText(String.valueOf(maxDisplay));
+                errorMessageLabel.setText("");
             }
-            updateSummaryAndChart();
+            updateSummaryAndChart(true);
         });
         controlsPanel.add(toggleOthersBtn);
 
+        timelineBtn = createButton("Timeline");
+        timelineBtn.setEnabled(false);
+        timelineBtn.addActionListener(e -> setTimelineMode(!timelineMode));
+        controlsPanel.add(timelineBtn);
+
+        JPanel groupByPanel = new JPanel();
+        groupByPanel.setOpaque(false);
+        JLabel groupByLabel = new JLabel("Group by:");
+        groupByLabel.setFont(PIXEL_FONT.deriveFont(10f));
+        groupByLabel.setForeground(HEADER_TEXT_COLOR);
+        groupByPanel.add(groupByLabel);
+        List<Set<EarningsCube.Dimension>> groupings = new ArrayList<>();
+        groupings.add(Collections.emptySet());
+        groupings.addAll(EarningsCube.groupings());
+        groupByCombo = new JComboBox<>();
+        for (Set<EarningsCube.Dimension> option : groupings) {
+            groupByCombo.addItem(groupingLabel(option));
+        }
+        groupByCombo.setFont(PIXEL_FONT.deriveFont(10f));
+        groupByCombo.setBackground(BUTTON_BG);
+        groupByCombo.setForeground(BUTTON_FG);
+        groupByCombo.addActionListener(e -> setGrouping(groupings.get(groupByCombo.getSelectedIndex())));
+        groupByPanel.add(groupByCombo);
+        controlsPanel.add(groupByPanel);
+
         JPanel sliderPanel = new JPanel();
         sliderPanel.setOpaque(false);
         JLabel sliderLabel = new JLabel("Filter:");
@@ -212,7 +360,7 @@ public class EsportEarningsAnalyzer extends JFrame {
                     maxDisplay = topNSlider.getValue();
                     topNValueLabel.setText(String.valueOf(maxDisplay));
                 }
-                updateSummaryAndChart();
+                updateSummaryAndChart(false);
             }
         });
         sliderPanel.add(topNSlider);
@@ -240,7 +388,7 @@ public class EsportEarningsAnalyzer extends JFrame {
                 threshold = val;
                 topNSlider.setValue((int)threshold);
                 topNValueLabel.setText(formatCurrency(threshold));
-                updateSummaryAndChart();
+                updateSummaryAndChart(false);
             } catch (NumberFormatException ex) {
                 // ignore bad input
             }
@@ -249,11 +397,151 @@ public class EsportEarningsAnalyzer extends JFrame {
         manualThresholdPanel.setVisible(false);
         controlsPanel.add(manualThresholdPanel);
 
+        timelinePanel = new JPanel();
+        timelinePanel.setOpaque(false);
+        timelinePlayBtn = createSmallButton("Play");
+        timelinePlayBtn.addActionListener(e -> toggleTimelinePlayback());
+        timelinePanel.add(timelinePlayBtn);
+        timelineSlider = new JSlider(0, 0, 0);
+        timelineSlider.setOpaque(false);
+        timelineSlider.addChangeListener(e -> {
+            if (!timelineMode || dataset == null) return;
+            timelineYear = dataset.timeline().yearAt(timelineSlider.getValue());
+            timelineYearLabel.setText(String.valueOf(timelineYear));
+            updateSummaryAndChart(false);
+        });
+        timelinePanel.add(timelineSlider);
+        timelineYearLabel = new JLabel("");
+        timelineYearLabel.setFont(PIXEL_FONT.deriveFont(10f));
+        timelineYearLabel.setForeground(HEADER_TEXT_COLOR);
+        timelinePanel.add(timelineYearLabel);
+        timelinePanel.setVisible(false);
+        controlsPanel.add(timelinePanel);
+        // One year per step; the donut tweens between steps.
+        timelinePlayer = new javax.swing.Timer(800, e -> {
+            if (timelineSlider.getValue() < timelineSlider.getMaximum()) {
+                timelineSlider.setValue(timelineSlider.getValue() + 1);
+            } else {
+                stopTimelinePlayback();
+            }
+        });
+
+        JPanel filterPanel = new JPanel();
+        filterPanel.setOpaque(false);
+        JLabel filterLabel = new JLabel("Where:");
+        filterLabel.setFont(PIXEL_FONT.deriveFont(10f));
+        filterLabel.setForeground(HEADER_TEXT_COLOR);
+        filterPanel.add(filterLabel);
+        filterInput = new JTextField(32);
+        filterInput.setFont(PIXEL_FONT.deriveFont(10f));
+        filterInput.setBackground(BUTTON_BG);
+        filterInput.setForeground(BUTTON_FG);
+        filterInput.setBorder(new RoundedBorder(BUTTON_FG, 2, 4));
+        filterInput.setToolTipText("e.g. Genre = \"Strategy\" and Releaseyear >= 2010 and PlayerNo > 100");
+        filterInput.addActionListener(e -> setRowFilter(filterInput.getText()));
+        filterPanel.add(filterInput);
+        JButton clearFilterBtn = createSmallButton("Clear");
+        clearFilterBtn.addActionListener(e -> {
+            filterInput.setText("");
+            setRowFilter("");
+        });
+        filterPanel.add(clearFilterBtn);
+        controlsPanel.add(filterPanel);
+
+        JPanel searchPanel = new JPanel();
+        searchPanel.setOpaque(false);
+        JLabel searchLabel = new JLabel("Find:");
+        searchLabel.setFont(PIXEL_FONT.deriveFont(10f));
+        searchLabel.setForeground(HEADER_TEXT_COLOR);
+        searchPanel.add(searchLabel);
+        searchInput = new JTextField(18);
+        searchInput.setFont(PIXEL_FONT.deriveFont(10f));
+        searchInput.setBackground(BUTTON_BG);
+        searchInput.setForeground(BUTTON_FG);
+        searchInput.setBorder(new RoundedBorder(BUTTON_FG, 2, 4));
+        searchInput.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { updateSearchResults(); }
+            public void removeUpdate(DocumentEvent e) { updateSearchResults(); }
+            public void changedUpdate(DocumentEvent e) { updateSearchResults(); }
+        });
+        searchInput.addActionListener(e -> {
+            TitleSearchIndex.Match selected = searchList.getSelectedValue();
+            if (selected != null) showSearchMatch(selected);
+        });
+        // Arrow keys move through the suggestions while the caret stays in the field.
+        searchInput.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "searchNext");
+        searchInput.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "searchPrevious");
+        searchInput.getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "searchClose");
+        searchInput.getActionMap().put("searchNext", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                moveSearchSelection(1);
+            }
+        });
+        searchInput.getActionMap().put("searchPrevious", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                moveSearchSelection(-1);
+            }
+        });
+        searchInput.getActionMap().put("searchClose", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                searchPopup.setVisible(false);
+            }
+        });
+        searchPanel.add(searchInput);
+        controlsPanel.add(searchPanel);
+
+        searchList = new JList<>(searchResults);
+        searchList.setFocusable(false);
+        searchList.setFont(PIXEL_FONT.deriveFont(10f));
+        searchList.setBackground(PANEL_BG);
+        searchList.setForeground(BODY_TEXT_COLOR);
+        searchList.setSelectionBackground(BUTTON_BG);
+        searchList.setSelectionForeground(BUTTON_FG);
+        searchList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        searchList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                TitleSearchIndex.Match match = (TitleSearchIndex.Match) value;
+                String text = String.format("#%,d  %s - %s", match.rank + 1, match.label, formatCurrency(match.value));
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        searchList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = searchList.locationToIndex(e.getPoint());
+                if (index >= 0) showSearchMatch(searchResults.get(index));
+            }
+        });
+        // Not focusable, so typing continues in the field while the suggestions are open.
+        searchPopup = new JPopupMenu();
+        searchPopup.setFocusable(false);
+        searchPopup.setBorder(new RoundedBorder(BUTTON_FG, 2, 4));
+        searchPopup.add(searchList);
+
         errorMessageLabel = new JLabel("");
         errorMessageLabel.setFont(PIXEL_FONT.deriveFont(10f));
         errorMessageLabel.setForeground(new Color(0xFF5555));
         controlsPanel.add(errorMessageLabel);
 
+        loadProgressPanel = new JPanel();
+        loadProgressPanel.setOpaque(false);
+        loadProgressBar = new JProgressBar(0, 1000);
+        loadProgressBar.setStringPainted(true);
+        loadProgressBar.setFont(PIXEL_FONT.deriveFont(10f));
+        loadProgressBar.setForeground(BUTTON_FG);
+        loadProgressBar.setBackground(BUTTON_BG);
+        loadProgressBar.setPreferredSize(new Dimension(260, 22));
+        loadProgressPanel.add(loadProgressBar);
+        JButton cancelLoadBtn = createSmallButton("Cancel");
+        cancelLoadBtn.addActionListener(e -> {
+            if (loadTask != null) loadTask.cancel(false);
+        });
+        loadProgressPanel.add(cancelLoadBtn);
+        loadProgressPanel.setVisible(false);
+        controlsPanel.add(loadProgressPanel);
+
         exportOptionsPanel = new JPanel();
         exportOptionsPanel.setOpaque(false);
         exportOptionsPanel.setBorder(BorderFactory.createTitledBorder(new RoundedBorder(HEADER_TEXT_COLOR, 2, 8), "Export Options", 0, 0, PIXEL_FONT.deriveFont(10f), HEADER_TEXT_COLOR));
@@ -275,7 +563,7 @@ public class EsportEarningsAnalyzer extends JFrame {
         chartPanel = new JPanel(new BorderLayout());
         chartPanel.setOpaque(false);
         chartPanel.setBorder(BorderFactory.createTitledBorder(new RoundedBorder(HEADER_TEXT_COLOR, 2, 8),
-                "Total Money Distribution per Esports Title", 0, 0, PIXEL_FONT, HEADER_TEXT_COLOR));
+                chartTitle(grouping), 0, 0, PIXEL_FONT, HEADER_TEXT_COLOR));
         chartPanel.setPreferredSize(new Dimension(600, 500));
         mainPanel.add(chartPanel, BorderLayout.CENTER);
 
@@ -296,15 +584,45 @@ public class EsportEarningsAnalyzer extends JFrame {
         eastPanel.add(summaryScrollPane, "SUMMARY");
 
         // Legend Panel: Increase width and make scrollable
-        legendPanel = new JPanel();
+        legendPanel = new JPanel(new BorderLayout());
         legendPanel.setBackground(PANEL_BG);
         legendPanel.setForeground(new Color(0xFAEBD7));
-        legendPanel.setLayout(new BoxLayout(legendPanel, BoxLayout.Y_AXIS));
-        legendPanel.add(new JLabel("Legend will appear here after uploading data."));
-        JScrollPane legendScrollPane = new JScrollPane(legendPanel);
+        JPanel legendHeaderPanel = new JPanel(new BorderLayout(5, 0));
+        legendHeaderPanel.setBackground(PANEL_BG);
+        legendHeaderPanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 10, 5));
+        // Increase header font size for better visibility
+        legendHeader = new JLabel("Legend will appear here after uploading data.");
+        legendHeader.setFont(PIXEL_FONT.deriveFont(Font.BOLD, 10f));
+        legendHeader.setForeground(HEADER_TEXT_COLOR);
+        legendHeaderPanel.add(legendHeader, BorderLayout.CENTER);
+        legendSortCombo = new JComboBox<>(new String[]{"By Earnings", "By Name"});
+        legendSortCombo.setFont(PIXEL_FONT.deriveFont(10f));
+        legendSortCombo.setBackground(BUTTON_BG);
+        legendSortCombo.setForeground(BUTTON_FG);
+        legendSortCombo.addActionListener(e -> {
+            legendModel.setSortByName(legendSortCombo.getSelectedIndex() == 1);
+            legendList.clearSelection();
+        });
+        legendHeaderPanel.add(legendSortCombo, BorderLayout.EAST);
+        legendPanel.add(legendHeaderPanel, BorderLayout.NORTH);
+        legendList = new JList<>(legendModel);
+        legendList.setBackground(PANEL_BG);
+        legendList.setCellRenderer(new LegendCellRenderer());
+        // Fixed cell sizes keep JList from measuring every row when the model changes.
+        legendList.setFixedCellHeight(21);
+        legendList.setFixedCellWidth(380);
+        legendList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        legendList.addListSelectionListener(e -> {
+            LegendEntry selected = legendList.getSelectedValue();
+            if (!e.getValueIsAdjusting() && selected != null && pieChartPanel != null) {
+                pieChartPanel.setHoverIndex(selected.slice);
+            }
+        });
+        JScrollPane legendScrollPane = new JScrollPane(legendList);
         legendScrollPane.setPreferredSize(new Dimension(400, 600));
         legendScrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
-        eastPanel.add(legendScrollPane, "LEGEND");
+        legendPanel.add(legendScrollPane, BorderLayout.CENTER);
+        eastPanel.add(legendPanel, "LEGEND");
 
         // Start by showing the summary view.
         CardLayout cl = (CardLayout)(eastPanel.getLayout());
@@ -377,497 +695,6034 @@ public class EsportEarningsAnalyzer extends JFrame {
     // ------------------ File Import and CSV Parsing ------------------
     private void openFile() {
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Select CSV File");
+        fileChooser.setDialogTitle("Select CSV Files");
         fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv"));
+        fileChooser.setMultiSelectionEnabled(true);
         int result = fileChooser.showOpenDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            selectedFile = fileChooser.getSelectedFile();
-            processFile(selectedFile);
+        if (result == JFileChooser.APPROVE_OPTION && fileChooser.getSelectedFiles().length > 0) {
+            selectedFiles = Collections.unmodifiableList(Arrays.asList(fileChooser.getSelectedFiles()));
+            processFiles(selectedFiles);
         }
     }
 
-    private void processFile(File file) {
-        try {
-            earningsMap = new HashMap<>();
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-            String line = reader.readLine(); // skip header
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
-                String[] tokens = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)");
-                if (tokens.length < 3) continue;
-                double totalMoney = 0;
-                try {
-                    totalMoney = Double.parseDouble(tokens[1].trim());
-                } catch (NumberFormatException e) {
-                    continue;
-                }
-                String gameName = tokens[2].trim().replaceAll("^\"|\"$", "");
-                if (!gameName.isEmpty()) {
-                    earningsMap.put(gameName, earningsMap.getOrDefault(gameName, 0.0) + totalMoney);
-                }
-            }
-            reader.close();
-            if (showOthers) {
-                double newMax = computeThresholdSliderMax(earningsMap);
-                topNSlider.setMaximum((int)newMax);
-                threshold = newMax / 2.0;
-                topNSlider.setValue((int)threshold);
-                topNValueLabel.setText(formatCurrency(threshold));
-                thresholdInput.setText(String.valueOf(threshold));
-            }
-            updateSummaryAndChart();
-            exportBtn.setEnabled(true);
-            errorMessageLabel.setText("");
-        } catch (IOException e) {
-            errorMessageLabel.setText("Error reading file: " + e.getMessage());
+    // Parsing runs on worker threads; the merged result is swapped in on the EDT.
+    private void processFiles(List<File> files) {
+        if (loadTask != null && !loadTask.isDone()) {
+            loadTask.cancel(false);
         }
+        importBtn.setEnabled(false);
+        stopFollowing();
+        loadProgressBar.setValue(0);
+        loadProgressBar.setString(files.size() == 1 ? "Loading " + files.get(0).getName() + "..."
+                : "Loading " + files.size() + " files...");
+        loadProgressPanel.setVisible(true);
+        errorMessageLabel.setText("");
+        loadTask = new FileLoadTask(files);
+        loadTask.execute();
     }
 
-    // ------------------ Filtering and Aggregation ------------------
-    private Map<String, Double> getFilteredData(Map<String, Double> dataMap) {
-        List<Map.Entry<String, Double>> entries = new ArrayList<>(dataMap.entrySet());
-        entries.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
-        Map<String, Double> filtered = new LinkedHashMap<>();
+    private void applyLoadResult(EarningsLoader.LoadResult result, FilteredView view) {
+        if (result.sketch != null) {
+            applySketchResult(result);
+            return;
+        }
+        sketch = null;
+        groupByCombo.setEnabled(true);
+        exportCSVBtn.setEnabled(true);
+        loadedDataset = result.dataset;
+        dataset = view.dataset;
+        filterReport = view.report;
+        loadReport = buildLoadReport(result);
+        earningsMap = groupedEarnings();
         if (showOthers) {
-            for (Map.Entry<String, Double> entry : entries) {
-                if (entry.getValue() >= threshold) {
-                    filtered.put(entry.getKey(), entry.getValue());
-                }
-            }
-        } else {
-            if (entries.size() <= maxDisplay) {
-                for (Map.Entry<String, Double> entry : entries) {
-                    filtered.put(entry.getKey(), entry.getValue());
-                }
-            } else {
-                double otherSum = 0.0;
-                for (int i = 0; i < entries.size(); i++) {
-                    if (i < maxDisplay) {
-                        filtered.put(entries.get(i).getKey(), entries.get(i).getValue());
-                    } else {
-                        otherSum += entries.get(i).getValue();
-                    }
-                }
-                filtered.put("Other", otherSum);
-            }
+            resetThresholdRange();
         }
-        return filtered;
-    }
-
-    private String formatCurrency(double num) {
-        return java.text.NumberFormat.getCurrencyInstance(Locale.US).format(num);
-    }
-
-    private double computeThresholdSliderMax(Map<String, Double> dataMap) {
-        return dataMap.values().stream().filter(Objects::nonNull).mapToDouble(Double::doubleValue).max().orElse(1000);
-    }
-
-    // ------------------ Update Summary/Legend and Chart ------------------
-    private void updateSummaryAndChart() {
-        Map<String, Double> filteredData = getFilteredData(earningsMap);
-        updateSummary(filteredData);
-        updateLegend(filteredData); // update legend with color swatches, titles, and store legend items
-        createPieChart(filteredData);
+        errorMessageLabel.setText("");
+        if (timelineMode) resetTimelineRange(true);
+        updateSummaryAndChart(true);
+        exportBtn.setEnabled(true);
+        // Appends are followed in one file only; merged loads are a point-in-time view.
+        followBtn.setEnabled(selectedFiles.size() == 1);
+        timelineBtn.setEnabled(true);
+        int failed = 0;
+        for (EarningsLoader.FileStats file : result.files) {
+            if (file.error != null) failed++;
+        }
+        if (failed > 0) {
+            errorMessageLabel.setText(String.format("%d of %d files could not be read; see the summary.",
+                    failed, result.files.size()));
+        }
+        if (following && selectedFiles.size() == 1) startFollowing();
     }
 
-    private void updateSummary(Map<String, Double> filteredData) {
-        StringBuilder summary = new StringBuilder();
-        DecimalFormat formatter = new DecimalFormat("#,###.00");
-        summary.append("Aggregated Earnings:\n\n");
-        double total = filteredData.values().stream().mapToDouble(Double::doubleValue).sum();
-        for (Map.Entry<String, Double> entry : filteredData.entrySet()) {
-            double percent = total > 0 ? (entry.getValue() / total * 100) : 0;
-            summary.append(String.format("%-35s : %s (%.1f%%)\n",
-                    entry.getKey(), formatCurrency(entry.getValue()), percent));
+    // Only the GameName totals exist, so grouping, the timeline, following and row export are off.
+    private void applySketchResult(EarningsLoader.LoadResult result) {
+        stopTimelinePlayback();
+        if (timelineMode) {
+            timelineMode = false;
+            timelineBtn.setText("Timeline");
+            timelinePanel.setVisible(false);
         }
-        summary.append("\nTotal Earnings: ").append(formatCurrency(total));
-        summaryTextArea.setText(summary.toString());
+        loadedDataset = null;
+        dataset = null;
+        sketch = result.sketch;
+        if (!grouping.isEmpty()) groupByCombo.setSelectedIndex(0);
+        groupByCombo.setEnabled(false);
+        filterReport = rowFilter == null ? "" : String.format("\n\nFilter: %s\nMatched %,d of %,d rows",
+                rowFilter.text(), sketch.matchedRows(), sketch.rowCount());
+        loadReport = buildLoadReport(result);
+        earningsMap = sketch.table();
+        if (showOthers) {
+            resetThresholdRange();
+        }
+        errorMessageLabel.setText("");
+        updateSummaryAndChart(true);
+        exportBtn.setEnabled(true);
+        exportCSVBtn.setEnabled(false);
+        followBtn.setEnabled(false);
+        timelineBtn.setEnabled(false);
     }
 
-    // Update Legend Panel with legend items
-    private void updateLegend(Map<String, Double> filteredData) {
-        legendPanel.removeAll();
-        legendItemPanels.clear();
-        legendPanel.setLayout(new BoxLayout(legendPanel, BoxLayout.Y_AXIS));
-        DecimalFormat formatter = new DecimalFormat("#,###.00");
-        double total = filteredData.values().stream().mapToDouble(Double::doubleValue).sum();
-        // Increase header font size for better visibility
-        JLabel header = new JLabel("Esport Title Legend");
-        header.setFont(PIXEL_FONT.deriveFont(Font.BOLD, 10f));
-        header.setForeground(HEADER_TEXT_COLOR);
-        header.setAlignmentX(Component.CENTER_ALIGNMENT);
-        legendPanel.add(header);
-        legendPanel.add(Box.createVerticalStrut(10));
-        int index = 0;
-        for (Map.Entry<String, Double> entry : filteredData.entrySet()) {
-            Color swatchColor = CHART_COLORS[index % CHART_COLORS.length];
-            JPanel itemPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
-            itemPanel.setOpaque(true);
-            itemPanel.setBackground(PANEL_BG);
-            // Create a small colored swatch label.
-            JLabel swatch = new JLabel();
-            swatch.setPreferredSize(new Dimension(15, 15));
-            swatch.setOpaque(true);
-            swatch.setBackground(swatchColor);
-            swatch.setBorder(BorderFactory.createLineBorder(Color.BLACK));
-            itemPanel.add(swatch);
-            // Create the title label.
-            JLabel titleLabel = new JLabel(entry.getKey() + " - " + formatCurrency(entry.getValue())
-                    + " (" + String.format("%.1f", entry.getValue()/total*100) + "%)");
-            titleLabel.setFont(PIXEL_FONT.deriveFont(10f));
-            titleLabel.setForeground(BODY_TEXT_COLOR);
-            itemPanel.add(titleLabel);
-            legendPanel.add(itemPanel);
-            legendItemPanels.add(itemPanel);
-            index++;
-        }
-        legendPanel.revalidate();
-        legendPanel.repaint();
-    }
-
-    // Update legend highlighting based on hovered slice index.
-    private void updateLegendHover(int hoveredIndex) {
-        for (int i = 0; i < legendItemPanels.size(); i++) {
-            JPanel item = legendItemPanels.get(i);
-            if (i == hoveredIndex) {
-                item.setBorder(BorderFactory.createLineBorder(CHART_COLORS[i % CHART_COLORS.length], 2));
-            } else {
-                item.setBorder(null);
+    // Lists each file's rows and time when several were merged, so slow or bad files stand out.
+    static String buildLoadReport(EarningsLoader.LoadResult result) {
+        if (result.files.size() < 2) return "";
+        StringBuilder report = new StringBuilder("\n\nFiles loaded:\n");
+        long sumNanos = 0;
+        for (EarningsLoader.FileStats file : result.files) {
+            report.append(file.file.getName()).append(": ");
+            if (file.error != null) {
+                report.append("failed (").append(file.error.getMessage()).append(")\n");
+                continue;
             }
+            sumNanos += file.nanos;
+            report.append(String.format("%,d rows", file.rows));
+            if (file.rejectedRows > 0) report.append(String.format(" (rejected: %,d)", file.rejectedRows));
+            report.append(String.format(", %,d ms%s%n", file.nanos / 1_000_000, file.fromSnapshot ? " (snapshot)" : ""));
         }
-        legendPanel.revalidate();
-        legendPanel.repaint();
+        report.append(String.format("Merged in %,d ms (files alone: %,d ms)",
+                result.nanos / 1_000_000, sumNanos / 1_000_000));
+        return report.toString();
     }
 
-    private void createPieChart(Map<String, Double> filteredData) {
-        List<Map.Entry<String, Double>> sortedEntries = new ArrayList<>(filteredData.entrySet());
-        double total = sortedEntries.stream().mapToDouble(Map.Entry::getValue).sum();
-        pieChartPanel = new DonutChartPanel(sortedEntries, total, CHART_COLORS);
-        chartPanel.removeAll();
-        chartPanel.add(pieChartPanel, BorderLayout.CENTER);
-        chartPanel.revalidate();
-        chartPanel.repaint();
-        updateChartImage();
-    }
-
-    private void updateChartImage() {
-        if (pieChartPanel == null) return;
-        chartImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = chartImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, 800, 600);
-        g2d.setColor(Color.BLACK);
-        g2d.setFont(new Font("SansSerif", Font.BOLD, 20));
-        FontMetrics fm = g2d.getFontMetrics();
-        String title = "Total Money Distribution per Esports Title";
-        int titleWidth = fm.stringWidth(title);
-        g2d.drawString(title, (800 - titleWidth) / 2, 30);
-        pieChartPanel.paintToImage(g2d, 800, 600);
-        g2d.dispose();
-    }
+    // ------------------ Tail Follow ------------------
+    private void startFollowing() {
+        stopFollowing();
+        if (loadedDataset == null || selectedFiles.size() != 1) return;
+        try {
+            tailFollower = new TailFollower(selectedFiles.get(0), loadedDataset, new TailFollower.Listener() {
+                public void appended(TailFollower source, EarningsDataset updated, int newRows, long rejectedRows) {
+                    // Filtered here so the EDT only swaps references.
+                    FilteredView view = filterRows(updated, rowFilter);
+                    SwingUtilities.invokeLater(() -> {
+                        if (tailFollower == source) applyAppendedRows(updated, view, newRows, rejectedRows);
+                    });
+                }
 
-    // ------------------ Export Methods ------------------
-    private void exportCSV() {
-        if (earningsMap == null || earningsMap.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No data to export", "Error", JOptionPane.ERROR_MESSAGE);
-            return;
+                public void reset(TailFollower source) {
+                    // Truncated or replaced: offsets are meaningless, so read it again from the start.
+                    SwingUtilities.invokeLater(() -> {
+                        if (tailFollower == source) processFiles(selectedFiles);
+                    });
+                }
+
+                public void failed(TailFollower source, IOException error) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (tailFollower == source) errorMessageLabel.setText("Stopped following: " + error.getMessage());
+                    });
+                }
+            });
+            tailFollower.start();
+        } catch (IOException e) {
+            errorMessageLabel.setText("Cannot follow file: " + e.getMessage());
         }
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Save CSV File");
-        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV Files", "csv"));
-        int result = fileChooser.showSaveDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            if (!file.getName().toLowerCase().endsWith(".csv"))
-                file = new File(file.getAbsolutePath() + ".csv");
-            try (FileWriter writer = new FileWriter(file)) {
-                writer.write("GameName,TotalEarnings\n");
-                for (Map.Entry<String, Double> entry : earningsMap.entrySet()) {
-                    writer.write(entry.getKey() + "," + entry.getValue() + "\n");
-                }
-                JOptionPane.showMessageDialog(this, "Data exported successfully to " + file.getName(),
-                        "Export Successful", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error exporting data: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
+    }
+
+    private void stopFollowing() {
+        if (tailFollower != null) {
+            tailFollower.close();
+            tailFollower = null;
         }
     }
 
-    private void exportImage(String format) {
-        if (chartImage == null) {
-            JOptionPane.showMessageDialog(this, "No chart to save", "Error", JOptionPane.ERROR_MESSAGE);
+    private void applyAppendedRows(EarningsDataset updated, FilteredView view, int newRows, long rejectedRows) {
+        loadedDataset = updated;
+        if (view.filter != rowFilter) {
+            // The filter changed while this batch was filtered; redo it against the new rows.
+            startFilterTask();
             return;
         }
-        JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("Save Chart as " + format.toUpperCase());
-        fileChooser.setFileFilter(new FileNameExtensionFilter(format.toUpperCase() + " Files", format));
-        int result = fileChooser.showSaveDialog(this);
-        if (result == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            if (!file.getName().toLowerCase().endsWith("." + format))
-                file = new File(file.getAbsolutePath() + "." + format);
-            try {
-                ImageIO.write(chartImage, format, file);
-                JOptionPane.showMessageDialog(this, "Chart saved successfully to " + file.getName(),
-                        "Save Successful", JOptionPane.INFORMATION_MESSAGE);
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(this, "Error saving chart: " + e.getMessage(),
-                        "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        }
+        dataset = view.dataset;
+        filterReport = view.report;
+        earningsMap = groupedEarnings();
+        if (timelineMode) resetTimelineRange(false);
+        errorMessageLabel.setText(String.format("Following %s: %,d new rows%s", selectedFiles.get(0).getName(), newRows,
+                rejectedRows > 0 ? String.format(" (%,d rejected)", rejectedRows) : ""));
+        // One coalesced recompute per batch; no re-animation for incremental updates.
+        updateSummaryAndChart(false);
     }
 
-    // ------------------ DonutChartPanel ------------------
-    private class DonutChartPanel extends JPanel {
-        private final List<Map.Entry<String, Double>> entries;
-        private final double total;
-        private final Color[] colors;
-        private int hoverIndex = -1;
-        private final DecimalFormat df = new DecimalFormat("#,###.00");
-        private double animationProgress = 0.0;
-        private javax.swing.Timer animationTimer;
-        private double[] startAngles;
-        private double[] sweepAngles;
-        private Map<String, String> additionalInfo;
-
-        public DonutChartPanel(List<Map.Entry<String, Double>> entries, double total, Color[] colors) {
-            this.entries = entries;
-            this.total = total;
-            this.colors = colors;
-            startAngles = new double[entries.size()];
-            sweepAngles = new double[entries.size()];
-            calculateAngles();
+    private class FileLoadTask extends SwingWorker<EarningsLoader.LoadResult, long[]> implements EarningsLoader.Progress {
+        private final List<File> files;
+        private final long totalBytes;
+        private final RowFilter filter = rowFilter;
+        private final boolean approximateLoad = approximate;
+        private FilteredView view; // set in the background, read after get()
 
-            additionalInfo = new HashMap<>();
-            additionalInfo.put("Strategy", "Popular: StarCraft, Age of Empires");
-            additionalInfo.put("Collectible Card Game", "Popular: Magic, Hearthstone");
-            additionalInfo.put("Sports", "Popular: FIFA, Madden NFL");
-            additionalInfo.put("Fighting Game", "Popular: Street Fighter, Tekken");
-            additionalInfo.put("Multiplayer Battle Arena", "Popular: Dota 2, LoL");
-            additionalInfo.put("First Person Shooter", "Popular: CS, COD");
-            additionalInfo.put("Racing", "Popular: Forza, Gran Turismo");
+        FileLoadTask(List<File> files) {
+            this.files = files;
+            long bytes = 0;
+            for (File file : files) bytes += file.length();
+            this.totalBytes = Math.max(1, bytes);
+        }
 
-            animationTimer = new javax.swing.Timer(20, new ActionListener() {
-                public void actionPerformed(ActionEvent e) {
-                    animationProgress += 0.02;
-                    if (animationProgress >= 1.0) {
-                        animationProgress = 1.0;
-                        animationTimer.stop();
-                    }
-                    repaint();
-                }
-            });
-            animationTimer.start();
+        @Override
+        protected EarningsLoader.LoadResult doInBackground() throws Exception {
+            if (approximateLoad) {
+                return EarningsLoader.loadApproximate(files, filter, EarningsSketch.DEFAULT_COUNTERS, this);
+            }
+            EarningsLoader.LoadResult result = EarningsLoader.loadAll(files, this, snapshotWriter);
+            // A filter picked while the file loaded is applied here too, so the EDT never aggregates all rows.
+            RowFilter latest = filter;
+            do {
+                view = filterRows(result.dataset, latest);
+            } while ((latest = rowFilter) != view.filter);
+            return result;
+        }
 
-            addMouseMotionListener(new MouseMotionAdapter() {
-                public void mouseMoved(MouseEvent e) {
-                    updateHoverIndex(e.getX(), e.getY());
-                }
-            });
-            addMouseListener(new MouseAdapter() {
-                public void mouseExited(MouseEvent e) {
-                    setHoverIndex(-1);
-                }
-            });
+        @Override
+        public void update(long rows, long bytes) {
+            publish(new long[]{rows, bytes});
         }
 
-        private void calculateAngles() {
-            double currentAngle = 90;
-            for (int i = 0; i < entries.size(); i++) {
-                startAngles[i] = currentAngle;
-                sweepAngles[i] = 360 * (entries.get(i).getValue() / total);
-                currentAngle += sweepAngles[i];
-            }
+        @Override
+        protected void process(List<long[]> chunks) {
+            if (loadTask != this) return;
+            long[] latest = chunks.get(chunks.size() - 1);
+            loadProgressBar.setValue((int) (latest[1] * 1000 / totalBytes));
+            loadProgressBar.setString(String.format("%,d rows / %,d KB", latest[0], latest[1] / 1024));
         }
 
-        private void updateHoverIndex(int mouseX, int mouseY) {
-            int width = getWidth();
-            int height = getHeight();
-            int size = Math.min(width, height) - 50;
-            int x = (width - size) / 2;
-            int y = (height - size) / 2;
-            int centerX = x + size / 2;
-            int centerY = y + size / 2;
-            int radius = size / 2;
-            int dx = mouseX - centerX, dy = mouseY - centerY;
-            double distance = Math.sqrt(dx * dx + dy * dy);
-            if (distance > radius || distance < radius * 0.4) {
-                setHoverIndex(-1);
+        @Override
+        protected void done() {
+            if (loadTask != this) return;
+            loadProgressPanel.setVisible(false);
+            importBtn.setEnabled(true);
+            if (isCancelled()) {
+                errorMessageLabel.setText("Loading cancelled.");
                 return;
             }
-            double theta = Math.toDegrees(Math.atan2(centerY - mouseY, mouseX - centerX));
-            if (theta < 0) theta += 360;
-            for (int i = 0; i < entries.size(); i++) {
-                double startAngle = startAngles[i];
-                double endAngle = (startAngle + sweepAngles[i]) % 360;
-                if (startAngle <= endAngle) {
-                    if (theta >= startAngle && theta < endAngle) {
-                        setHoverIndex(i);
-                        return;
-                    }
+            try {
+                EarningsLoader.LoadResult result = get();
+                applyLoadResult(result, view);
+                // The filter changed after the rows were filtered; the view shown so far matches its own
+                // filter line and is replaced once the new filter has run.
+                if (result.sketch == null && view.filter != rowFilter) startFilterTask();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (java.util.concurrent.ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof java.util.concurrent.CancellationException) {
+                    errorMessageLabel.setText("Loading cancelled.");
                 } else {
-                    if (theta >= startAngle || theta < endAngle) {
-                        setHoverIndex(i);
-                        return;
-                    }
+                    errorMessageLabel.setText("Error reading file: " + cause.getMessage());
                 }
             }
-            setHoverIndex(-1);
         }
+    }
 
-        public void setHoverIndex(int index) {
-            if (hoverIndex != index) {
-                hoverIndex = index;
-                updateLegendHover(hoverIndex);
-                repaint();
-            }
+    // ------------------ Row Filter ------------------
+    private void setRowFilter(String text) {
+        RowFilter filter;
+        try {
+            filter = text.trim().isEmpty() ? null : RowFilter.parse(text);
+        } catch (IllegalArgumentException e) {
+            errorMessageLabel.setText("Where: " + e.getMessage());
+            return;
         }
+        rowFilter = filter;
+        errorMessageLabel.setText("");
+        if (approximate) {
+            // The sketch only saw the rows the old filter let through, so the files are streamed again.
+            if (!selectedFiles.isEmpty()) processFiles(selectedFiles);
+            return;
+        }
+        // A load in progress picks the new filter up when it finishes.
+        if (loadedDataset != null && (loadTask == null || loadTask.isDone())) startFilterTask();
+    }
 
-        @Override
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2d = (Graphics2D) g.create();
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            int width = getWidth();
-            int height = getHeight();
+    private void startFilterTask() {
+        if (filterTask != null) filterTask.cancel(false);
+        filterTask = new FilterTask(loadedDataset, rowFilter);
+        filterTask.execute();
+    }
 
-            // Glass Morphism Background: semi-transparent, rounded gray rectangle
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
-            g2d.setColor(new Color(200, 200, 200)); // gray tone
-            g2d.fillRoundRect(0, 0, width, height, 20, 20);
-            g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 1f));
+    /** The rows a filter kept, with aggregates built, and the summary line describing it. */
+    static final class FilteredView {
+        final RowFilter filter;
+        final EarningsDataset dataset;
+        final String report;
 
-            int size = Math.min(width, height) - 50;
-            int x = (width - size) / 2, y = (height - size) / 2;
-            g2d.setFont(new Font("SansSerif", Font.BOLD, 16));
-            FontMetrics fm = g2d.getFontMetrics();
-            String title = "Total Money Distribution per Esports Title";
-            int titleWidth = fm.stringWidth(title);
-            g2d.drawString(title, (width - titleWidth) / 2, 20);
+        FilteredView(RowFilter filter, EarningsDataset dataset, String report) {
+            this.filter = filter;
+            this.dataset = dataset;
+            this.report = report;
+        }
+    }
 
-            for (int i = 0; i < entries.size(); i++) {
-                double previousSum = 0;
-                for (int j = 0; j < i; j++) previousSum += sweepAngles[j];
-                if (previousSum / 360 > animationProgress) continue;
-                double angleToDraw = sweepAngles[i];
-                if ((startAngles[i] - 90 + sweepAngles[i]) / 360 > animationProgress) {
-                    angleToDraw = (animationProgress * 360) - (startAngles[i] - 90);
-                    if (angleToDraw <= 0) continue;
-                }
-                Color sliceColor = colors[i % colors.length];
-                if (i == hoverIndex) {
-                    sliceColor = new Color(
-                            Math.min(255, sliceColor.getRed() + 30),
-                            Math.min(255, sliceColor.getGreen() + 30),
-                            Math.min(255, sliceColor.getBlue() + 30));
-                    int expandedSize = size + 10;
-                    int expandedX = (width - expandedSize) / 2;
-                    int expandedY = (height - expandedSize) / 2;
-                    g2d.setColor(sliceColor);
-                    g2d.fill(new Arc2D.Double(expandedX, expandedY, expandedSize, expandedSize,
-                            startAngles[i], angleToDraw, Arc2D.PIE));
-                } else {
-                    g2d.setColor(sliceColor);
-                    g2d.fill(new Arc2D.Double(x, y, size, size, startAngles[i], angleToDraw, Arc2D.PIE));
-                }
-            }
+    // Runs off the EDT; building the aggregates here keeps grouping and timeline switches instant.
+    static FilteredView filterRows(EarningsDataset all, RowFilter filter) {
+        if (filter == null) {
+            all.buildAggregates();
+            return new FilteredView(null, all, "");
+        }
+        long start = System.nanoTime();
+        EarningsDataset matched = filter.select(all);
+        long nanos = System.nanoTime() - start;
+        matched.buildAggregates();
+        String report = String.format("\n\nFilter: %s\nMatched %,d of %,d rows in %,d ms",
+                filter.text(), matched.rowCount, all.rowCount, nanos / 1_000_000);
+        return new FilteredView(filter, matched, report);
+    }
 
-            int holeSize = (int)(size * 0.4);
-            int holeX = x + (size - holeSize) / 2, holeY = y + (size - holeSize) / 2;
-            g2d.setColor(Color.WHITE);
-            g2d.fill(new Ellipse2D.Double(holeX, holeY, holeSize, holeSize));
+    private class FilterTask extends SwingWorker<FilteredView, Void> {
+        private final EarningsDataset all;
+        private final RowFilter filter;
 
-            if (hoverIndex >= 0 && hoverIndex < entries.size()) {
-                Map.Entry<String, Double> entry = entries.get(hoverIndex);
-                double percentage = entry.getValue() / total * 100;
-                g2d.setFont(new Font("SansSerif", Font.BOLD, 12));
-                String genreText = entry.getKey();
-                String percentText = String.format("%.2f%%", percentage);
-                String valueText = "$" + df.format(entry.getValue());
-                fm = g2d.getFontMetrics();
-                int genreWidth = fm.stringWidth(genreText);
-                int percentWidth = fm.stringWidth(percentText);
-                int valueWidth = fm.stringWidth(valueText);
-                int centerX = x + size / 2, centerY = y + size / 2;
-                int textBoxWidth = Math.max(Math.max(genreWidth, percentWidth), valueWidth) + 20;
-                int textBoxHeight = 60;
-                g2d.setColor(new Color(255, 255, 255, 200));
-                g2d.fillRoundRect(centerX - textBoxWidth / 2, centerY - 30, textBoxWidth, textBoxHeight, 10, 10);
-                g2d.setColor(Color.BLACK);
-                g2d.drawString(genreText, centerX - genreWidth / 2, centerY - 10);
-                g2d.drawString(percentText, centerX - percentWidth / 2, centerY + 10);
-                g2d.drawString(valueText, centerX - valueWidth / 2, centerY + 30);
-                String extraText = additionalInfo.get(genreText);
-                if (extraText != null) {
-                    Font extraFont = new Font("SansSerif", Font.ITALIC, 10);
-                    g2d.setFont(extraFont);
-                    FontMetrics extraFm = g2d.getFontMetrics();
-                    int extraWidth = extraFm.stringWidth(extraText);
-                    g2d.drawString(extraText, centerX - extraWidth / 2, centerY + 45);
-                }
-                g2d.setColor(colors[hoverIndex % colors.length]);
-                g2d.setStroke(new BasicStroke(2f));
-                g2d.drawRoundRect(centerX - textBoxWidth / 2, centerY - 30, textBoxWidth, textBoxHeight, 10, 10);
-            }
-            g2d.dispose();
+        FilterTask(EarningsDataset all, RowFilter filter) {
+            this.all = all;
+            this.filter = filter;
         }
 
-        public void paintToImage(Graphics2D g2d, int width, int height) {
-            int size = 400;
-            int x = (width - size) / 2, y = 50;
-            for (int i = 0; i < entries.size(); i++) {
-                g2d.setColor(colors[i % colors.length]);
-                g2d.fill(new Arc2D.Double(x, y, size, size, startAngles[i], sweepAngles[i], Arc2D.PIE));
+        @Override
+        protected FilteredView doInBackground() {
+            return filterRows(all, filter);
+        }
+
+        @Override
+        protected void done() {
+            if (filterTask != this || isCancelled() || loadedDataset != all) return;
+            try {
+                FilteredView view = get();
+                dataset = view.dataset;
+                filterReport = view.report;
+                earningsMap = groupedEarnings();
+                if (showOthers) resetThresholdRange();
+                if (timelineMode) {
+                    if (dataset.timeline().size() == 0) {
+                        setTimelineMode(false);
+                    } else {
+                        resetTimelineRange(true);
+                    }
+                }
+                updateSummaryAndChart(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (java.util.concurrent.ExecutionException e) {
+                errorMessageLabel.setText("Filter failed: " + e.getCause().getMessage());
             }
-            int holeSize = (int)(size * 0.4);
-            int holeX = x + (size - holeSize) / 2, holeY = y + (size - holeSize) / 2;
-            g2d.setColor(Color.WHITE);
-            g2d.fill(new Ellipse2D.Double(holeX, holeY, holeSize, holeSize));
         }
     }
 
-    // ------------------ Main Method ------------------
-    public static void main(String[] args) {
-        try {
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-        } catch (Exception e) { e.printStackTrace(); }
-        SwingUtilities.invokeLater(() -> new EsportEarningsAnalyzer().setVisible(true));
+    // ------------------ Title Search ------------------
+    // Runs on every keystroke; the index answers in microseconds, so no worker is needed.
+    private void updateSearchResults() {
+        searchResults.clear();
+        String text = searchInput.getText();
+        List<TitleSearchIndex.Match> matches = earningsMap == null || text.trim().isEmpty()
+                ? Collections.emptyList() : earningsMap.searchIndex().search(text, SEARCH_RESULTS);
+        if (matches.isEmpty()) {
+            searchPopup.setVisible(false);
+            return;
+        }
+        for (TitleSearchIndex.Match match : matches) searchResults.addElement(match);
+        searchList.setSelectedIndex(0);
+        searchList.setVisibleRowCount(matches.size());
+        searchPopup.pack();
+        if (!searchPopup.isVisible()) searchPopup.show(searchInput, 0, searchInput.getHeight());
     }
-}
+
+    private void moveSearchSelection(int delta) {
+        if (searchResults.isEmpty()) return;
+        int index = Math.max(0, Math.min(searchResults.size() - 1, searchList.getSelectedIndex() + delta));
+        searchList.setSelectedIndex(index);
+        searchList.ensureIndexIsVisible(index);
+    }
+
+    // Highlights the match's slice and scrolls the legend to it when it has a slice of its own.
+    private void showSearchMatch(TitleSearchIndex.Match match) {
+        searchPopup.setVisible(false);
+        ChartViewModel view = exportView;
+        int slice = -1;
+        for (int i = 0; view != null && i < view.entries.size(); i++) {
+            if (view.entries.get(i).getKey().equals(match.label)) {
+                slice = i;
+                break;
+            }
+        }
+        String rank = String.format("%s is #%,d with %s", match.label, match.rank + 1, formatCurrency(match.value));
+        if (slice < 0 || pieChartPanel == null) {
+            errorMessageLabel.setText(rank + "; it has no slice of its own in this chart.");
+            return;
+        }
+        errorMessageLabel.setText(rank + ".");
+        ((CardLayout) eastPanel.getLayout()).show(eastPanel, "LEGEND");
+        pieChartPanel.setHoverIndex(slice);
+        int row = legendModel.rowOfSlice(slice);
+        legendList.setSelectedIndex(row);
+        legendList.ensureIndexIsVisible(row);
+    }
+
+    // ------------------ Timeline Playback ------------------
+    private void setTimelineMode(boolean enabled) {
+        if (enabled && dataset.timeline().size() == 0) {
+            errorMessageLabel.setText("No release years in this file.");
+            return;
+        }
+        timelineMode = enabled;
+        timelineBtn.setText(enabled ? "All Years" : "Timeline");
+        stopTimelinePlayback();
+        timelinePanel.setVisible(enabled);
+        if (enabled) resetTimelineRange(true);
+        updateSummaryAndChart(true);
+    }
+
+    // Fits the slider to the dataset's years; keeps the current year unless told to start at the latest.
+    private void resetTimelineRange(boolean toLatest) {
+        EarningsTimeline timeline = dataset.timeline();
+        if (timeline.size() == 0) {
+            setTimelineMode(false);
+            return;
+        }
+        int index = toLatest ? timeline.size() - 1 : Math.max(0, timeline.indexAtOrBefore(timelineYear));
+        timelineSlider.setMaximum(timeline.size() - 1);
+        timelineSlider.setValue(index);
+        timelineYear = timeline.yearAt(index);
+        timelineYearLabel.setText(String.valueOf(timelineYear));
+    }
+
+    private void toggleTimelinePlayback() {
+        if (timelinePlayer.isRunning()) {
+            stopTimelinePlayback();
+            return;
+        }
+        if (timelineSlider.getValue() == timelineSlider.getMaximum()) timelineSlider.setValue(0);
+        timelinePlayBtn.setText("Pause");
+        timelinePlayer.start();
+    }
+
+    private void stopTimelinePlayback() {
+        timelinePlayer.stop();
+        timelinePlayBtn.setText("Play");
+    }
+
+    // ------------------ Filtering and Aggregation ------------------
+    private void setGrouping(Set<EarningsCube.Dimension> newGrouping) {
+        grouping = newGrouping;
+        ((javax.swing.border.TitledBorder) chartPanel.getBorder()).setTitle(chartTitle(grouping));
+        chartPanel.repaint();
+        if (dataset == null) return;
+        earningsMap = groupedEarnings();
+        if (showOthers) {
+            resetThresholdRange();
+        }
+        updateSummaryAndChart(true);
+    }
+
+    private EarningsTable groupedEarnings() {
+        return grouping.isEmpty() ? dataset.earningsByGame() : dataset.cube().groupBy(grouping).earnings;
+    }
+
+    static String groupingLabel(Set<EarningsCube.Dimension> dimensions) {
+        return dimensions.isEmpty() ? "Esports Title" : EarningsCube.label(dimensions);
+    }
+
+    static String chartTitle(Set<EarningsCube.Dimension> dimensions) {
+        return "Total Money Distribution per " + groupingLabel(dimensions);
+    }
+
+    private void resetThresholdRange() {
+        double newMax = computeThresholdSliderMax(earningsMap);
+        topNSlider.setMaximum((int)newMax);
+        threshold = newMax / 2.0;
+        topNSlider.setValue((int)threshold);
+        topNValueLabel.setText(formatCurrency(threshold));
+        thresholdInput.setText(String.valueOf(threshold));
+    }
+
+    static Map<String, Double> getFilteredData(EarningsTable dataMap, boolean showOthers, int maxDisplay, double threshold) {
+        RankIndex rank = dataMap.rankIndex();
+        Map<String, Double> filtered = new LinkedHashMap<>();
+        if (showOthers) {
+            // Size the result before building it; very low thresholds are capped.
+            int matched = rank.countAtLeast(threshold);
+            int shown = Math.min(matched, MAX_THRESHOLD_SLICES);
+            for (int r = 0; r < shown; r++) {
+                filtered.put(rank.keyAt(r), rank.valueAt(r));
+            }
+            if (matched > shown) {
+                filtered.put("Other", rank.sumFrom(shown) - rank.sumFrom(matched));
+            }
+        } else {
+            int shown = Math.min(maxDisplay, rank.size());
+            for (int r = 0; r < shown; r++) {
+                filtered.put(rank.keyAt(r), rank.valueAt(r));
+            }
+            if (rank.size() > maxDisplay) {
+                filtered.put("Other", rank.sumFrom(maxDisplay));
+            }
+        }
+        return filtered;
+    }
+
+    static String formatCurrency(double num) {
+        return java.text.NumberFormat.getCurrencyInstance(Locale.US).format(num);
+    }
+
+    private double computeThresholdSliderMax(EarningsTable dataMap) {
+        return dataMap == null || dataMap.isEmpty() ? 1000 : dataMap.rankIndex().valueAt(0);
+    }
+
+    // ------------------ Update Summary/Legend and Chart ------------------
+    /**
+     * Everything a recompute depends on, captured on the EDT so the worker never reads
+     * Swing state or fields that the controls may change underneath it.
+     */
+    static final class FilterQuery {
+        final EarningsTable data;
+        final EarningsCube.Group group; // null when grouped by GameName
+        final String groupingLabel;
+        final String title;
+        final boolean showOthers;
+        final int maxDisplay;
+        final double threshold;
+        final long rowCount;
+        final long rejectedRows;
+        final String loadReport; // appended to the summary as is
+        final EarningsSketch sketch; // non-null when data holds approximate amounts
+        final int timelineYear; // 0 unless data is a timeline frame
+        final boolean animate;
+
+        FilterQuery(EarningsTable data, EarningsCube.Group group, String groupingLabel, String title,
+                    boolean showOthers, int maxDisplay, double threshold,
+                    long rowCount, long rejectedRows, String loadReport, EarningsSketch sketch,
+                    int timelineYear, boolean animate) {
+            this.data = data;
+            this.group = group;
+            this.groupingLabel = groupingLabel;
+            this.title = title;
+            this.showOthers = showOthers;
+            this.maxDisplay = maxDisplay;
+            this.threshold = threshold;
+            this.rowCount = rowCount;
+            this.rejectedRows = rejectedRows;
+            this.loadReport = loadReport;
+            this.sketch = sketch;
+            this.timelineYear = timelineYear;
+            this.animate = animate;
+        }
+    }
+
+    /** The finished, immutable result of a recompute; applying it only touches Swing components. */
+    static final class ChartViewModel {
+        final String title;
+        final String groupingLabel;
+        final List<Map.Entry<String, Double>> entries;
+        final double total;
+        final String summary;
+        final String notice; // null leaves the message label alone
+        final boolean animate;
+        final boolean morph; // timeline steps tween from the previous frame instead of sweeping
+
+        ChartViewModel(String title, String groupingLabel, List<Map.Entry<String, Double>> entries,
+                       double total, String summary, String notice, boolean animate, boolean morph) {
+            this.title = title;
+            this.groupingLabel = groupingLabel;
+            this.entries = entries;
+            this.total = total;
+            this.summary = summary;
+            this.notice = notice;
+            this.animate = animate;
+            this.morph = morph;
+        }
+    }
+
+    // Schedules a recompute; bursts of calls collapse into one.
+    private void updateSummaryAndChart(boolean animate) {
+        if (earningsMap == null) return;
+        if (sketch != null) {
+            recomputeScheduler.request(new FilterQuery(earningsMap, null, groupingLabel(grouping),
+                    chartTitle(grouping) + " (approximate)", showOthers, maxDisplay, threshold,
+                    sketch.rowCount(), sketch.rejectedRows(), filterReport + loadReport, sketch, 0, animate));
+            return;
+        }
+        EarningsCube.Group group = grouping.isEmpty() ? null : dataset.cube().groupBy(grouping);
+        EarningsTable data = earningsMap;
+        String title = chartTitle(grouping);
+        int year = 0;
+        if (timelineMode) {
+            EarningsTimeline timeline = dataset.timeline();
+            int index = Math.min(timelineSlider.getValue(), timeline.size() - 1);
+            if (index >= 0) {
+                data = timeline.frame(grouping, index);
+                year = timeline.yearAt(index);
+                title += " through " + year;
+                group = null; // the cube's player and tournament counts cover every year
+            }
+        }
+        recomputeScheduler.request(new FilterQuery(data, group, groupingLabel(grouping), title,
+                showOthers, maxDisplay, threshold, loadedDataset.rowCount, loadedDataset.rejectedRows,
+                filterReport + loadReport, null, year, animate));
+    }
+
+    // Runs on the recompute worker.
+    static ChartViewModel buildViewModel(FilterQuery query) {
+        long start = System.nanoTime();
+        Perf.RecomputeEvent event = new Perf.RecomputeEvent();
+        event.begin();
+        Map<String, Double> filteredData = getFilteredData(query.data, query.showOthers, query.maxDisplay, query.threshold);
+        List<Map.Entry<String, Double>> entries = new ArrayList<>();
+        double total = 0;
+        for (Map.Entry<String, Double> entry : filteredData.entrySet()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            total += entry.getValue();
+        }
+        String notice = null;
+        if (query.showOthers) {
+            int matched = query.data.rankIndex().countAtLeast(query.threshold);
+            notice = matched > MAX_THRESHOLD_SLICES
+                    ? String.format("%,d entries match; showing the top %d.", matched, MAX_THRESHOLD_SLICES) : "";
+        }
+        ChartViewModel view = new ChartViewModel(query.title, query.groupingLabel, Collections.unmodifiableList(entries),
+                total, buildSummary(query, entries, total), notice, query.animate,
+                query.timelineYear != 0 && !query.animate);
+        Perf.RECOMPUTE.record(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.filterMode = query.showOthers ? "threshold" : "top-n";
+            event.grouping = query.groupingLabel;
+            event.tableSize = query.data.size();
+            event.entries = entries.size();
+            event.commit();
+        }
+        return view;
+    }
+
+    // Runs on the EDT with the newest result.
+    private void applyViewModel(ChartViewModel view) {
+        if (view.notice != null) errorMessageLabel.setText(view.notice);
+        summaryTextArea.setText(view.summary);
+        updateLegend(view); // update legend with color swatches, titles, and store legend items
+        createPieChart(view);
+        exportView = view;
+    }
+
+    static String buildSummary(FilterQuery query, List<Map.Entry<String, Double>> entries, double total) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Aggregated Earnings by ").append(query.groupingLabel).append(":\n\n");
+        EarningsCube.Group group = query.group;
+        for (Map.Entry<String, Double> entry : entries) {
+            double percent = total > 0 ? (entry.getValue() / total * 100) : 0;
+            summary.append(String.format("%-35s : %s (%.1f%%)",
+                    entry.getKey(), formatCurrency(entry.getValue()), percent));
+            double error = query.sketch == null ? 0 : query.sketch.error(entry.getKey());
+            if (error > 0) summary.append(" (up to ").append(formatCurrency(error)).append(" high)");
+            int index = group == null ? -1 : group.labels.find(entry.getKey());
+            if (index >= 0) {
+                summary.append(String.format(" - %,d players, %,d tournaments",
+                        group.players[index], group.tournaments[index]));
+            }
+            summary.append("\n");
+        }
+        summary.append("\nTotal Earnings: ").append(formatCurrency(total));
+        if (query.showOthers) {
+            RankIndex rank = query.data.rankIndex();
+            int matched = rank.countAtLeast(query.threshold);
+            summary.append("\nBelow threshold: ").append(formatCurrency(rank.sumFrom(matched)))
+                    .append(" across ").append(rank.size() - matched).append(" entries");
+        }
+        if (query.timelineYear != 0) {
+            summary.append("\nReleased through ").append(query.timelineYear).append(": ")
+                    .append(query.data.size()).append(" entries");
+        }
+        summary.append("\nRows loaded: ").append(query.rowCount);
+        if (query.rejectedRows > 0) {
+            summary.append(" (rejected: ").append(query.rejectedRows).append(")");
+        }
+        if (query.sketch != null) appendSketchBounds(summary, query.sketch, entries, query.showOthers);
+        summary.append(query.loadReport);
+        return summary.toString();
+    }
+
+    // States how far the approximate amounts can be from the truth.
+    private static void appendSketchBounds(StringBuilder summary, EarningsSketch sketch,
+                                           List<Map.Entry<String, Double>> entries, boolean showOthers) {
+        double shownError = 0;
+        for (Map.Entry<String, Double> entry : entries) shownError += sketch.error(entry.getKey());
+        summary.append(String.format("\n\nApproximate: the heaviest titles were tracked with %,d counters.",
+                sketch.capacity()));
+        if (sketch.maxError() > 0) {
+            summary.append("\nEach amount may be up to ").append(formatCurrency(sketch.maxError()))
+                    .append(" high; titles earning more than that are always tracked.");
+            if (!showOthers && shownError > 0) {
+                summary.append("\n\"Other\" may be up to ").append(formatCurrency(shownError)).append(" low.");
+            }
+        } else {
+            summary.append("\nEvery title fit in the counters, so the amounts are exact.");
+        }
+        summary.append("\nTotal Earnings is exact.");
+        summary.append(String.format("\nDistinct titles: ~%,d, countries: ~%,d (\u00B1%.1f%%)",
+                sketch.distinctTitles(), sketch.distinctCountries(), sketch.distinctError() * 100));
+    }
+
+    // Update Legend Panel with legend items
+    private void updateLegend(ChartViewModel view) {
+        long start = System.nanoTime();
+        Perf.LegendEvent event = new Perf.LegendEvent();
+        event.begin();
+        legendHeader.setText(view.groupingLabel + " Legend");
+        LegendEntry[] entries = new LegendEntry[view.entries.size()];
+        for (int i = 0; i < entries.length; i++) {
+            Map.Entry<String, Double> entry = view.entries.get(i);
+            double percent = view.total > 0 ? entry.getValue() / view.total * 100 : 0;
+            entries[i] = new LegendEntry(i, entry.getKey(), entry.getValue(), percent);
+        }
+        hoveredLegendSlice = -1;
+        legendList.clearSelection();
+        legendModel.setEntries(entries);
+        Perf.LEGEND.record(System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.rows = entries.length;
+            event.commit();
+        }
+    }
+
+    // Update legend highlighting based on hovered slice index; only the affected rows repaint.
+    private void updateLegendHover(int hoveredIndex) {
+        int previousRow = legendModel.rowOfSlice(hoveredLegendSlice);
+        hoveredLegendSlice = hoveredIndex;
+        repaintLegendRow(previousRow);
+        int row = legendModel.rowOfSlice(hoveredIndex);
+        repaintLegendRow(row);
+        if (row >= 0) {
+            legendList.ensureIndexIsVisible(row);
+        }
+    }
+
+    private void repaintLegendRow(int row) {
+        Rectangle bounds = row >= 0 ? legendList.getCellBounds(row, row) : null;
+        if (bounds != null) legendList.repaint(bounds);
+    }
+
+    static final class LegendEntry {
+        final int slice;
+        final String label;
+        final double value;
+        final double percent;
+
+        LegendEntry(int slice, String label, double value, double percent) {
+            this.slice = slice;
+            this.label = label;
+            this.value = value;
+            this.percent = percent;
+        }
+    }
+
+    // Legend rows in display order, with a slice -> row lookup for hover highlighting.
+    private static final class LegendModel extends AbstractListModel<LegendEntry> {
+        private LegendEntry[] entries = new LegendEntry[0];
+        private LegendEntry[] rows = entries;
+        private int[] rowOfSlice = new int[0];
+        private boolean sortByName;
+
+        void setEntries(LegendEntry[] entries) {
+            this.entries = entries;
+            reorder();
+        }
+
+        void setSortByName(boolean sortByName) {
+            this.sortByName = sortByName;
+            reorder();
+        }
+
+        int rowOfSlice(int slice) {
+            return slice >= 0 && slice < rowOfSlice.length ? rowOfSlice[slice] : -1;
+        }
+
+        private void reorder() {
+            int previousSize = rows.length;
+            rows = entries.clone();
+            if (sortByName) {
+                Arrays.sort(rows, (a, b) -> a.label.compareToIgnoreCase(b.label));
+            }
+            rowOfSlice = new int[entries.length];
+            for (int row = 0; row < rows.length; row++) {
+                rowOfSlice[rows[row].slice] = row;
+            }
+            fireContentsChanged(this, 0, Math.max(previousSize, rows.length) - 1);
+        }
+
+        @Override
+        public int getSize() {
+            return rows.length;
+        }
+
+        @Override
+        public LegendEntry getElementAt(int index) {
+            return rows[index];
+        }
+    }
+
+    // Stamps one legend row at a time: a color swatch icon plus "title - earnings (percent)".
+    private class LegendCellRenderer extends JLabel implements ListCellRenderer<LegendEntry> {
+        private final java.text.NumberFormat currency = java.text.NumberFormat.getCurrencyInstance(Locale.US);
+        private final Border plainBorder = BorderFactory.createEmptyBorder(2, 2, 2, 2);
+        private Color swatchColor = Color.GRAY;
+
+        LegendCellRenderer() {
+            setOpaque(true);
+            setFont(PIXEL_FONT.deriveFont(10f));
+            setForeground(BODY_TEXT_COLOR);
+            setIconTextGap(5);
+            setIcon(new Icon() {
+                public void paintIcon(Component c, Graphics g, int x, int y) {
+                    g.setColor(swatchColor);
+                    g.fillRect(x, y, 15, 15);
+                    g.setColor(Color.BLACK);
+                    g.drawRect(x, y, 14, 14);
+                }
+                public int getIconWidth() {
+                    return 15;
+                }
+                public int getIconHeight() {
+                    return 15;
+                }
+            });
+        }
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends LegendEntry> list, LegendEntry value,
+                                                      int index, boolean isSelected, boolean cellHasFocus) {
+            swatchColor = CHART_COLORS[value.slice % CHART_COLORS.length];
+            setText(value.label + " - " + currency.format(value.value)
+                    + " (" + String.format("%.1f", value.percent) + "%)");
+            setBackground(isSelected ? BUTTON_BG : PANEL_BG);
+            setBorder(value.slice == hoveredLegendSlice ? BorderFactory.createLineBorder(swatchColor, 2) : plainBorder);
+            return this;
+        }
+    }
+
+    // The chart panel is created once and then fed new data, instead of a new panel and timer per update.
+    private void createPieChart(ChartViewModel view) {
+        if (pieChartPanel == null) {
+            pieChartPanel = new DonutChartPanel(view.title, view.entries, view.total, CHART_COLORS);
+            pieChartPanel.setHoverListener(this::updateLegendHover);
+            chartPanel.removeAll();
+            chartPanel.add(pieChartPanel, BorderLayout.CENTER);
+            chartPanel.revalidate();
+        } else {
+            pieChartPanel.setData(view.title, view.entries, view.total, view.animate, view.morph);
+        }
+        chartPanel.repaint();
+    }
+
+    // ------------------ Export Methods ------------------
+    private void exportCSV() {
+        if (earningsMap == null || earningsMap.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No data to export", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        EarningsDataset data = dataset;
+        Set<EarningsCube.Dimension> dimensions = grouping.isEmpty()
+                ? Collections.emptySet() : Collections.unmodifiableSet(EnumSet.copyOf(grouping));
+
+        JComboBox<String> scopeCombo = new JComboBox<>(new String[] {
+                "Totals per " + groupingLabel(dimensions), "All loaded rows"});
+        JComboBox<CsvExporter.Order> orderCombo = new JComboBox<>(CsvExporter.Order.values());
+        JCheckBox extraColumnsBox = new JCheckBox("Include players, tournaments and row counts");
+        JCheckBox splitBox = new JCheckBox("One column per group dimension");
+        splitBox.setEnabled(dimensions.size() > 1);
+        JCheckBox gzipBox = new JCheckBox("Compress (.csv.gz)");
+        scopeCombo.addActionListener(e -> {
+            boolean totals = scopeCombo.getSelectedIndex() == 0;
+            extraColumnsBox.setEnabled(totals);
+            splitBox.setEnabled(totals && dimensions.size() > 1);
+        });
+        JPanel options = new JPanel(new GridLayout(0, 1, 5, 5));
+        options.add(scopeCombo);
+        options.add(orderCombo);
+        options.add(extraColumnsBox);
+        options.add(splitBox);
+        options.add(gzipBox);
+        if (JOptionPane.showConfirmDialog(this, options, "Export CSV", JOptionPane.OK_CANCEL_OPTION,
+                JOptionPane.PLAIN_MESSAGE) != JOptionPane.OK_OPTION) return;
+        boolean totals = scopeCombo.getSelectedIndex() == 0;
+        CsvExporter.Order order = (CsvExporter.Order) orderCombo.getSelectedItem();
+        boolean extraColumns = totals && extraColumnsBox.isSelected();
+        boolean split = totals && splitBox.isEnabled() && splitBox.isSelected();
+        boolean gzip = gzipBox.isSelected();
+        String extension = gzip ? ".csv.gz" : ".csv";
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save CSV File");
+        fileChooser.setFileFilter(gzip ? new FileNameExtensionFilter("Compressed CSV Files", "gz")
+                : new FileNameExtensionFilter("CSV Files", "csv"));
+        int result = fileChooser.showSaveDialog(this);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File selected = fileChooser.getSelectedFile();
+            String name = selected.getName().toLowerCase();
+            File file = name.endsWith(extension) ? selected
+                    : new File(selected.getAbsolutePath().replaceFirst("(?i)\\.csv$", "") + extension);
+            exportCSVBtn.setEnabled(false);
+            // Sorting and writing millions of rows takes a while; keep the EDT responsive.
+            new SwingWorker<Long, Void>() {
+                @Override
+                protected Long doInBackground() throws IOException {
+                    try (CsvWriter out = new CsvWriter(file, gzip)) {
+                        return totals
+                                ? CsvExporter.writeTotals(out, data, dimensions, order, extraColumns, split)
+                                : CsvExporter.writeRows(out, data, order);
+                    }
+                }
+
+                @Override
+                protected void done() {
+                    exportCSVBtn.setEnabled(true);
+                    try {
+                        long lines = get();
+                        JOptionPane.showMessageDialog(EsportEarningsAnalyzer.this,
+                                "Exported " + lines + " rows to " + file.getName(),
+                                "Export Successful", JOptionPane.INFORMATION_MESSAGE);
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        JOptionPane.showMessageDialog(EsportEarningsAnalyzer.this,
+                                "Error exporting data: " + cause.getMessage(),
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    private void exportImage(String format) {
+        ChartViewModel view = exportView;
+        if (view == null) {
+            JOptionPane.showMessageDialog(this, "No chart to save", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        int[] size = askExportResolution();
+        if (size == null) return;
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Chart as " + format.toUpperCase());
+        fileChooser.setFileFilter(new FileNameExtensionFilter(format.toUpperCase() + " Files", format));
+        int result = fileChooser.showSaveDialog(this);
+        if (result == JFileChooser.APPROVE_OPTION) {
+            File selected = fileChooser.getSelectedFile();
+            File file = selected.getName().toLowerCase().endsWith("." + format)
+                    ? selected : new File(selected.getAbsolutePath() + "." + format);
+            // Large canvases take seconds to rasterize and encode, so keep it off the EDT.
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws IOException {
+                    writeChartImage(view, format, file, size[0], size[1], size[2]);
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    try {
+                        get();
+                        JOptionPane.showMessageDialog(EsportEarningsAnalyzer.this,
+                                "Chart saved successfully to " + file.getName(),
+                                "Save Successful", JOptionPane.INFORMATION_MESSAGE);
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() != null ? e.getCause() : e;
+                        JOptionPane.showMessageDialog(EsportEarningsAnalyzer.this,
+                                "Error saving chart: " + cause.getMessage(),
+                                "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    // Returns {width, height, dpi}, or null if the user cancelled.
+    private int[] askExportResolution() {
+        JComboBox<String> presets = new JComboBox<>(EXPORT_PRESET_NAMES);
+        JSpinner widthSpinner = new JSpinner(new SpinnerNumberModel(EXPORT_WIDTH, 100, 30000, 100));
+        JSpinner heightSpinner = new JSpinner(new SpinnerNumberModel(EXPORT_HEIGHT, 75, 30000, 75));
+        JSpinner dpiSpinner = new JSpinner(new SpinnerNumberModel(96, 36, 1200, 1));
+        presets.addActionListener(e -> {
+            int[] preset = EXPORT_PRESETS[presets.getSelectedIndex()];
+            widthSpinner.setValue(preset[0]);
+            heightSpinner.setValue(preset[1]);
+            dpiSpinner.setValue(preset[2]);
+        });
+        JPanel panel = new JPanel(new GridLayout(0, 2, 5, 5));
+        panel.add(new JLabel("Preset:"));
+        panel.add(presets);
+        panel.add(new JLabel("Width (px):"));
+        panel.add(widthSpinner);
+        panel.add(new JLabel("Height (px):"));
+        panel.add(heightSpinner);
+        panel.add(new JLabel("DPI:"));
+        panel.add(dpiSpinner);
+        int choice = JOptionPane.showConfirmDialog(this, panel, "Export Resolution",
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) return null;
+        return new int[] {(Integer) widthSpinner.getValue(), (Integer) heightSpinner.getValue(),
+                (Integer) dpiSpinner.getValue()};
+    }
+
+    // Renders the chart at width x height and writes it with the DPI recorded in the image
+    // metadata. PNG pulls rows from a banded image, so only a few strips are ever in memory.
+    static void writeChartImage(ChartViewModel view, String format, File file,
+                                int width, int height, int dpi) throws IOException {
+        TiledChartImage image = new TiledChartImage(width, height, (g2d, w, h) ->
+                DonutChartPanel.paintToImage(g2d, w, h, view.title, view.entries, view.total, CHART_COLORS));
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) throw new IOException("No image writer for " + format);
+        ImageWriter writer = writers.next();
+        try {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed() && format.equals("jpg")) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(0.92f);
+            }
+            IIOMetadata metadata = writer.getDefaultImageMetadata(
+                    ImageTypeSpecifier.createFromRenderedImage(image), param);
+            setDpi(metadata, format, dpi);
+            // FileImageOutputStream does not truncate, so drop any previous file first.
+            java.nio.file.Files.deleteIfExists(file.toPath());
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, metadata), param);
+            }
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Records the resolution in the native tree (pHYs for PNG, JFIF density for JPEG); the
+    // standard tree's pixel-size merge is unreliable across ImageIO plugins.
+    private static void setDpi(IIOMetadata metadata, String format, int dpi) {
+        if (metadata == null || metadata.isReadOnly()) return;
+        String formatName = metadata.getNativeMetadataFormatName();
+        IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(formatName);
+        if (format.equals("png")) {
+            IIOMetadataNode phys = new IIOMetadataNode("pHYs");
+            String pixelsPerMeter = Integer.toString((int) Math.round(dpi / 0.0254));
+            phys.setAttribute("pixelsPerUnitXAxis", pixelsPerMeter);
+            phys.setAttribute("pixelsPerUnitYAxis", pixelsPerMeter);
+            phys.setAttribute("unitSpecifier", "meter");
+            root.appendChild(phys);
+        } else {
+            NodeList jfif = root.getElementsByTagName("app0JFIF");
+            if (jfif.getLength() == 0) return;
+            IIOMetadataNode app0 = (IIOMetadataNode) jfif.item(0);
+            app0.setAttribute("resUnits", "1"); // dots per inch
+            app0.setAttribute("Xdensity", Integer.toString(dpi));
+            app0.setAttribute("Ydensity", Integer.toString(dpi));
+        }
+        try {
+            metadata.setFromTree(formatName, root);
+        } catch (IIOInvalidTreeException e) {
+            // The writer keeps its default resolution; the pixels are unaffected.
+        }
+    }
+
+    // ------------------ DonutChartPanel ------------------
+    private static final Font TITLE_FONT = new Font("SansSerif", Font.BOLD, 16);
+    private static final Font TOOLTIP_FONT = new Font("SansSerif", Font.BOLD, 12);
+    private static final Font TOOLTIP_EXTRA_FONT = new Font("SansSerif", Font.ITALIC, 10);
+    private static final Color GLASS_COLOR = new Color(200, 200, 200); // gray tone
+    private static final Color TOOLTIP_BG = new Color(255, 255, 255, 200);
+    private static final BasicStroke TOOLTIP_STROKE = new BasicStroke(2f);
+
+    private static class DonutChartPanel extends JPanel {
+        private String title;
+        private List<Map.Entry<String, Double>> entries;
+        private double total;
+        private final Color[] colors;
+        private int hoverIndex = -1;
+        private final DecimalFormat df = new DecimalFormat("#,###.00");
+        private double animationProgress = 0.0;
+        // Timeline steps tween each slice from its previous sweep (matched by label) to the new one.
+        private double morphProgress = 1.0;
+        private double[] morphFromSweeps = new double[0];
+        private final Arc2D.Double morphArc = new Arc2D.Double(Arc2D.PIE);
+        private javax.swing.Timer animationTimer;
+        private double[] startAngles;
+        private double[] sweepAngles;
+        // cumulativeSweeps[i] = degrees from the chart's start angle to the end of slice i
+        private double[] cumulativeSweeps;
+        private java.util.function.IntConsumer hoverListener;
+        private Map<String, String> additionalInfo;
+
+        // Geometry for the current size and data, rebuilt only when either changes.
+        private int geometryWidth = -1;
+        private int geometryHeight = -1;
+        private int donutSize;
+        private int donutX;
+        private int donutY;
+        private Arc2D.Double[] sliceShapes = new Arc2D.Double[0];
+        private Ellipse2D.Double holeShape;
+        private final Arc2D.Double hoverShape = new Arc2D.Double(Arc2D.PIE);
+        private final Arc2D.Double revealClip = new Arc2D.Double(Arc2D.PIE);
+        // Back buffers: glass background + title, and the finished donut on a transparent canvas.
+        private BufferedImage backgroundBuffer;
+        private BufferedImage donutBuffer;
+        private final Color[] hoverColors;
+
+        public DonutChartPanel(String title, List<Map.Entry<String, Double>> entries, double total, Color[] colors) {
+            this.title = title;
+            this.entries = entries;
+            this.total = total;
+            this.colors = colors;
+            hoverColors = new Color[colors.length];
+            for (int i = 0; i < colors.length; i++) {
+                hoverColors[i] = new Color(
+                        Math.min(255, colors[i].getRed() + 30),
+                        Math.min(255, colors[i].getGreen() + 30),
+                        Math.min(255, colors[i].getBlue() + 30));
+            }
+            startAngles = new double[entries.size()];
+            sweepAngles = new double[entries.size()];
+            calculateAngles();
+
+            additionalInfo = new HashMap<>();
+            additionalInfo.put("Strategy", "Popular: StarCraft, Age of Empires");
+            additionalInfo.put("Collectible Card Game", "Popular: Magic, Hearthstone");
+            additionalInfo.put("Sports", "Popular: FIFA, Madden NFL");
+            additionalInfo.put("Fighting Game", "Popular: Street Fighter, Tekken");
+            additionalInfo.put("Multiplayer Battle Arena", "Popular: Dota 2, LoL");
+            additionalInfo.put("First Person Shooter", "Popular: CS, COD");
+            additionalInfo.put("Racing", "Popular: Forza, Gran Turismo");
+
+            animationTimer = new javax.swing.Timer(20, new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    animationProgress = Math.min(1.0, animationProgress + 0.02);
+                    morphProgress = Math.min(1.0, morphProgress + 0.05);
+                    if (animationProgress >= 1.0 && morphProgress >= 1.0) {
+                        animationTimer.stop();
+                    }
+                    repaint();
+                }
+            });
+            animationTimer.start();
+
+            addMouseMotionListener(new MouseMotionAdapter() {
+                public void mouseMoved(MouseEvent e) {
+                    updateHoverIndex(e.getX(), e.getY());
+                }
+            });
+            addMouseListener(new MouseAdapter() {
+                public void mouseExited(MouseEvent e) {
+                    setHoverIndex(-1);
+                }
+            });
+        }
+
+        public void setData(String title, List<Map.Entry<String, Double>> entries, double total,
+                            boolean animate, boolean morph) {
+            double[] fromSweeps = null;
+            if (morph && !animate && animationProgress >= 1.0) {
+                // Start from what is on screen now, which may itself be mid-tween.
+                Map<String, Double> shown = new HashMap<>();
+                for (int i = 0; i < this.entries.size(); i++) {
+                    shown.put(this.entries.get(i).getKey(), currentSweep(i));
+                }
+                fromSweeps = new double[entries.size()];
+                for (int i = 0; i < fromSweeps.length; i++) {
+                    fromSweeps[i] = shown.getOrDefault(entries.get(i).getKey(), 0.0);
+                }
+            }
+            this.title = title;
+            this.entries = entries;
+            this.total = total;
+            startAngles = new double[entries.size()];
+            sweepAngles = new double[entries.size()];
+            calculateAngles();
+            invalidateGeometry();
+            hoverIndex = -1;
+            if (animate) {
+                animationProgress = 0.0;
+                morphProgress = 1.0;
+                animationTimer.restart();
+            } else if (fromSweeps != null) {
+                morphFromSweeps = fromSweeps;
+                morphProgress = 0.0;
+                animationTimer.restart();
+            } else {
+                morphProgress = 1.0;
+            }
+            repaint();
+        }
+
+        // Sweep of slice i as currently drawn.
+        private double currentSweep(int i) {
+            if (morphProgress >= 1.0) return sweepAngles[i];
+            return morphFromSweeps[i] + (sweepAngles[i] - morphFromSweeps[i]) * morphProgress;
+        }
+
+        private void calculateAngles() {
+            double currentAngle = 90;
+            cumulativeSweeps = new double[entries.size()];
+            for (int i = 0; i < entries.size(); i++) {
+                startAngles[i] = currentAngle;
+                sweepAngles[i] = 360 * (entries.get(i).getValue() / total);
+                currentAngle += sweepAngles[i];
+                cumulativeSweeps[i] = currentAngle - 90;
+            }
+        }
+
+        private void updateHoverIndex(int mouseX, int mouseY) {
+            setHoverIndex(sliceAt(mouseX, mouseY));
+        }
+
+        /**
+         * Returns the slice under a point in panel coordinates, or -1 for the hole,
+         * the area outside the ring, or an empty chart. Points outside the ring are
+         * rejected on squared distance; the angle is then located by binary search
+         * over the cumulative sweep of the slices, so the cost is O(log n).
+         */
+        public int sliceAt(int px, int py) {
+            int n = cumulativeSweeps.length;
+            if (n == 0) return -1;
+            int width = getWidth();
+            int height = getHeight();
+            int size = Math.min(width, height) - 50;
+            int x = (width - size) / 2;
+            int y = (height - size) / 2;
+            double radius = size / 2.0;
+            double dx = px - (x + size / 2);
+            double dy = py - (y + size / 2);
+            double distanceSq = dx * dx + dy * dy;
+            double holeRadius = radius * 0.4;
+            if (distanceSq > radius * radius || distanceSq < holeRadius * holeRadius) return -1;
+            // Degrees counterclockwise from the first slice's start at 12 o'clock.
+            double offset = Math.toDegrees(Math.atan2(-dy, dx)) - 90;
+            if (offset < 0) offset += 360;
+            int lo = 0, hi = n - 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cumulativeSweeps[mid] > offset) hi = mid;
+                else lo = mid + 1;
+            }
+            return offset < cumulativeSweeps[lo] ? lo : -1;
+        }
+
+        public int getHoverIndex() {
+            return hoverIndex;
+        }
+
+        /** Called with the new hover index (or -1) whenever it changes. */
+        public void setHoverListener(java.util.function.IntConsumer hoverListener) {
+            this.hoverListener = hoverListener;
+        }
+
+        public void setHoverIndex(int index) {
+            if (hoverIndex != index) {
+                hoverIndex = index;
+                if (hoverListener != null) hoverListener.accept(hoverIndex);
+                repaint();
+            }
+        }
+
+        private void invalidateGeometry() {
+            geometryWidth = -1;
+            backgroundBuffer = null;
+            donutBuffer = null;
+        }
+
+        // Recomputes slice shapes and redraws the back buffers after a resize or data change.
+        private void ensureGeometry(Graphics2D target) {
+            int width = getWidth();
+            int height = getHeight();
+            if (width == geometryWidth && height == geometryHeight && backgroundBuffer != null) return;
+            geometryWidth = width;
+            geometryHeight = height;
+            donutSize = Math.min(width, height) - 50;
+            donutX = (width - donutSize) / 2;
+            donutY = (height - donutSize) / 2;
+            sliceShapes = new Arc2D.Double[entries.size()];
+            for (int i = 0; i < sliceShapes.length; i++) {
+                sliceShapes[i] = new Arc2D.Double(donutX, donutY, donutSize, donutSize,
+                        startAngles[i], sweepAngles[i], Arc2D.PIE);
+            }
+            int holeSize = (int)(donutSize * 0.4);
+            holeShape = new Ellipse2D.Double(donutX + (donutSize - holeSize) / 2, donutY + (donutSize - holeSize) / 2,
+                    holeSize, holeSize);
+
+            // Render at device resolution so HiDPI screens stay sharp.
+            double scale = target.getTransform().getScaleX();
+            backgroundBuffer = createBuffer(width, height, scale);
+            Graphics2D bg = backgroundBuffer.createGraphics();
+            bg.scale(scale, scale);
+            bg.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            // Glass Morphism Background: semi-transparent, rounded gray rectangle
+            bg.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.5f));
+            bg.setColor(GLASS_COLOR);
+            bg.fillRoundRect(0, 0, width, height, 20, 20);
+            bg.setComposite(AlphaComposite.SrcOver);
+            bg.setFont(TITLE_FONT);
+            FontMetrics fm = bg.getFontMetrics();
+            bg.drawString(title, (width - fm.stringWidth(title)) / 2, 20);
+            bg.dispose();
+
+            donutBuffer = createBuffer(width, height, scale);
+            Graphics2D donut = donutBuffer.createGraphics();
+            donut.scale(scale, scale);
+            donut.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            for (int i = 0; i < sliceShapes.length; i++) {
+                donut.setColor(colors[i % colors.length]);
+                donut.fill(sliceShapes[i]);
+            }
+            donut.setColor(Color.WHITE);
+            donut.fill(holeShape);
+            donut.dispose();
+        }
+
+        private BufferedImage createBuffer(int width, int height, double scale) {
+            int w = Math.max(1, (int) Math.ceil(width * scale));
+            int h = Math.max(1, (int) Math.ceil(height * scale));
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            return gc != null ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        // Each frame composites the cached layers; only the sweep clip and hover overlay vary.
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            Graphics2D g2d = (Graphics2D) g.create();
+            int width = getWidth();
+            int height = getHeight();
+            if (width <= 0 || height <= 0) {
+                g2d.dispose();
+                return;
+            }
+            long start = System.nanoTime();
+            Perf.PaintEvent event = new Perf.PaintEvent();
+            event.begin();
+            boolean rebuilt = width != geometryWidth || height != geometryHeight || backgroundBuffer == null;
+            ensureGeometry(g2d);
+            g2d.drawImage(backgroundBuffer, 0, 0, width, height, null);
+            if (morphProgress < 1.0) {
+                // Slices are laid end to end at their tweened sweeps; the gap left by entries
+                // that dropped out closes as the tween finishes.
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                double angle = 90;
+                for (int i = 0; i < sweepAngles.length; i++) {
+                    double sweep = currentSweep(i);
+                    morphArc.setArc(donutX, donutY, donutSize, donutSize, angle, sweep, Arc2D.PIE);
+                    g2d.setColor(colors[i % colors.length]);
+                    g2d.fill(morphArc);
+                    angle += sweep;
+                }
+                g2d.setColor(Color.WHITE);
+                g2d.fill(holeShape);
+            } else if (animationProgress < 1.0) {
+                revealClip.setArc(donutX, donutY, donutSize, donutSize, 90, animationProgress * 360, Arc2D.PIE);
+                Shape oldClip = g2d.getClip();
+                g2d.clip(revealClip);
+                g2d.drawImage(donutBuffer, 0, 0, width, height, null);
+                g2d.setClip(oldClip);
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2d.setColor(Color.WHITE);
+                g2d.fill(holeShape);
+            } else {
+                g2d.drawImage(donutBuffer, 0, 0, width, height, null);
+            }
+
+            if (hoverIndex >= 0 && hoverIndex < entries.size() && morphProgress >= 1.0) {
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                int expandedSize = donutSize + 10;
+                double angleToDraw = Math.min(sweepAngles[hoverIndex], animationProgress * 360 - (startAngles[hoverIndex] - 90));
+                if (angleToDraw > 0) {
+                    hoverShape.setArc((width - expandedSize) / 2, (height - expandedSize) / 2, expandedSize, expandedSize,
+                            startAngles[hoverIndex], angleToDraw, Arc2D.PIE);
+                    g2d.setColor(hoverColors[hoverIndex % hoverColors.length]);
+                    g2d.fill(hoverShape);
+                    g2d.setColor(Color.WHITE);
+                    g2d.fill(holeShape);
+                }
+                paintTooltip(g2d);
+            }
+            g2d.dispose();
+            Perf.PAINT.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.width = width;
+                event.height = height;
+                event.slices = entries.size();
+                event.geometryRebuilt = rebuilt;
+                event.animating = animationProgress < 1.0 || morphProgress < 1.0;
+                event.commit();
+            }
+        }
+
+        private void paintTooltip(Graphics2D g2d) {
+            Map.Entry<String, Double> entry = entries.get(hoverIndex);
+            double percentage = entry.getValue() / total * 100;
+            g2d.setFont(TOOLTIP_FONT);
+            String genreText = entry.getKey();
+            String percentText = String.format("%.2f%%", percentage);
+            String valueText = "$" + df.format(entry.getValue());
+            FontMetrics fm = g2d.getFontMetrics();
+            int genreWidth = fm.stringWidth(genreText);
+            int percentWidth = fm.stringWidth(percentText);
+            int valueWidth = fm.stringWidth(valueText);
+            int centerX = donutX + donutSize / 2, centerY = donutY + donutSize / 2;
+            int textBoxWidth = Math.max(Math.max(genreWidth, percentWidth), valueWidth) + 20;
+            int textBoxHeight = 60;
+            g2d.setColor(TOOLTIP_BG);
+            g2d.fillRoundRect(centerX - textBoxWidth / 2, centerY - 30, textBoxWidth, textBoxHeight, 10, 10);
+            g2d.setColor(Color.BLACK);
+            g2d.drawString(genreText, centerX - genreWidth / 2, centerY - 10);
+            g2d.drawString(percentText, centerX - percentWidth / 2, centerY + 10);
+            g2d.drawString(valueText, centerX - valueWidth / 2, centerY + 30);
+            String extraText = additionalInfo.get(genreText);
+            if (extraText != null) {
+                g2d.setFont(TOOLTIP_EXTRA_FONT);
+                FontMetrics extraFm = g2d.getFontMetrics();
+                int extraWidth = extraFm.stringWidth(extraText);
+                g2d.drawString(extraText, centerX - extraWidth / 2, centerY + 45);
+            }
+            g2d.setColor(colors[hoverIndex % colors.length]);
+            g2d.setStroke(TOOLTIP_STROKE);
+            g2d.drawRoundRect(centerX - textBoxWidth / 2, centerY - 30, textBoxWidth, textBoxHeight, 10, 10);
+        }
+
+        // Paints the export page (white background, title, donut) in 800x600 design units,
+        // scaled uniformly and centred in width x height. Reads only its arguments, so it is
+        // safe to call off the EDT.
+        static void paintToImage(Graphics2D g2d, int width, int height, String title,
+                                 List<Map.Entry<String, Double>> entries, double total, Color[] colors) {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, width, height);
+            double scale = Math.min(width / (double) EXPORT_WIDTH, height / (double) EXPORT_HEIGHT);
+            g2d.translate((width - EXPORT_WIDTH * scale) / 2, (height - EXPORT_HEIGHT * scale) / 2);
+            g2d.scale(scale, scale);
+
+            g2d.setColor(Color.BLACK);
+            g2d.setFont(new Font("SansSerif", Font.BOLD, 20));
+            FontMetrics fm = g2d.getFontMetrics();
+            g2d.drawString(title, (EXPORT_WIDTH - fm.stringWidth(title)) / 2, 30);
+
+            int size = 400;
+            int x = (EXPORT_WIDTH - size) / 2, y = 50;
+            double angle = 90;
+            for (int i = 0; i < entries.size(); i++) {
+                double sweep = 360 * (entries.get(i).getValue() / total);
+                g2d.setColor(colors[i % colors.length]);
+                g2d.fill(new Arc2D.Double(x, y, size, size, angle, sweep, Arc2D.PIE));
+                angle += sweep;
+            }
+            int holeSize = (int)(size * 0.4);
+            int holeX = x + (size - holeSize) / 2, holeY = y + (size - holeSize) / 2;
+            g2d.setColor(Color.WHITE);
+            g2d.fill(new Ellipse2D.Double(holeX, holeY, holeSize, holeSize));
+        }
+    }
+
+    // ------------------ Main Method ------------------
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            // Command-line batch mode: no window, no display required.
+            System.setProperty("java.awt.headless", "true");
+            System.exit(BatchCli.run(args));
+        }
+        try {
+            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+        } catch (Exception e) { e.printStackTrace(); }
+        SwingUtilities.invokeLater(() -> new EsportEarningsAnalyzer().setVisible(true));
+    }
+}
+
+/**
+ * RoundedBorder is a helper class that draws rounded borders.
+ */
+class RoundedBorder extends AbstractBorder {
+    private Color color;
+    private int thickness;
+    private int radius;
+
+    public RoundedBorder(Color color, int thickness, int radius) {
+        this.color = color;
+        this.thickness = thickness;
+        this.radius = radius;
+    }
+
+    @Override
+    public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setColor(color);
+        g2.setStroke(new BasicStroke(thickness));
+        g2.drawRoundRect(x, y, width - thickness, height - thickness, radius, radius);
+        g2.dispose();
+    }
+
+    @Override
+    public Insets getBorderInsets(Component c) {
+        return new Insets(thickness + radius / 2, thickness + radius / 2, thickness + radius / 2, thickness + radius / 2);
+    }
+
+    @Override
+    public Insets getBorderInsets(Component c, Insets insets) {
+        insets.left = insets.top = insets.right = insets.bottom = thickness + radius / 2;
+        return insets;
+    }
+}
+
+/**
+ * TiledChartImage is a RenderedImage painted on demand in full-width horizontal
+ * strips. Writers that pull pixels row by row (PNG does) only ever touch a strip
+ * or two, so very large exports never hold the whole canvas in memory. The most
+ * recently painted strip is kept, since consecutive rows fall in the same strip.
+ */
+class TiledChartImage implements RenderedImage {
+    interface Painter {
+        void paint(Graphics2D g2d, int width, int height);
+    }
+
+    private static final int TARGET_TILE_BYTES = 16 << 20;
+
+    private final int width;
+    private final int height;
+    private final int tileHeight;
+    private final Painter painter;
+    private final ColorModel colorModel = new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+    private final SampleModel sampleModel;
+    private int cachedTileY = -1;
+    private Raster cachedTile;
+
+    TiledChartImage(int width, int height, Painter painter) {
+        this.width = width;
+        this.height = height;
+        this.painter = painter;
+        this.tileHeight = Math.max(1, Math.min(height, TARGET_TILE_BYTES / (4 * width)));
+        this.sampleModel = colorModel.createCompatibleSampleModel(width, tileHeight);
+    }
+
+    @Override public int getWidth() { return width; }
+    @Override public int getHeight() { return height; }
+    @Override public int getMinX() { return 0; }
+    @Override public int getMinY() { return 0; }
+    @Override public int getNumXTiles() { return 1; }
+    @Override public int getNumYTiles() { return (height + tileHeight - 1) / tileHeight; }
+    @Override public int getMinTileX() { return 0; }
+    @Override public int getMinTileY() { return 0; }
+    @Override public int getTileWidth() { return width; }
+    @Override public int getTileHeight() { return tileHeight; }
+    @Override public int getTileGridXOffset() { return 0; }
+    @Override public int getTileGridYOffset() { return 0; }
+    @Override public ColorModel getColorModel() { return colorModel; }
+    @Override public SampleModel getSampleModel() { return sampleModel; }
+    @Override public Vector<RenderedImage> getSources() { return null; }
+    @Override public Object getProperty(String name) { return java.awt.Image.UndefinedProperty; }
+    @Override public String[] getPropertyNames() { return null; }
+
+    @Override
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileY != cachedTileY) {
+            WritableRaster raster = Raster.createWritableRaster(sampleModel, null);
+            BufferedImage strip = new BufferedImage(colorModel, raster, false, null);
+            Graphics2D g2d = strip.createGraphics();
+            g2d.translate(0, -tileY * tileHeight);
+            painter.paint(g2d, width, height);
+            g2d.dispose();
+            cachedTile = raster.createTranslatedChild(0, tileY * tileHeight);
+            cachedTileY = tileY;
+        }
+        return cachedTile;
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rect) {
+        WritableRaster raster = Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(rect.width, rect.height), rect.getLocation());
+        return copyData(raster);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        if (raster == null) raster = Raster.createWritableRaster(
+                sampleModel.createCompatibleSampleModel(width, height), null);
+        Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+        if (bounds.isEmpty()) return raster;
+        int firstTile = bounds.y / tileHeight;
+        int lastTile = (bounds.y + bounds.height - 1) / tileHeight;
+        for (int ty = firstTile; ty <= lastTile; ty++) {
+            Raster tile = getTile(0, ty);
+            Rectangle overlap = bounds.intersection(tile.getBounds());
+            raster.setRect(tile.createChild(overlap.x, overlap.y, overlap.width, overlap.height,
+                    overlap.x, overlap.y, null));
+        }
+        return raster;
+    }
+}
+
+/**
+ * BatchCli is the headless command-line mode. Each input CSV is loaded, grouped and
+ * filtered exactly as the GUI does it, then written out as an aggregated CSV and a
+ * chart image. Inputs are processed in parallel and each one prints its timings.
+ */
+class BatchCli {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java EsportEarningsAnalyzer --batch <file|dir> [--batch ...] [options]",
+            "       java EsportEarningsAnalyzer --serve [host:]port --batch <file|dir> [--batch ...] [--follow]",
+            "  --out <dir>              output directory (default: current directory)",
+            "  --top <n>                show the top n entries plus \"Other\" (default: 10)",
+            "  --threshold <amount>     show entries earning at least amount instead of top n",
+            "  --group <dims>           comma-separated: genre, country, year (default: game)",
+            "  --csv <kind>             slices (chart), totals (whole grouping), rows or none (default: slices)",
+            "  --order <order>          totals/rows order: earnings, name or file (default: earnings)",
+            "  --gzip                   write the CSV as .csv.gz",
+            "  --format <png|jpg|none>  chart image format (default: png)",
+            "  --size <w>x<h>           chart size in pixels (default: 800x600)",
+            "  --dpi <n>                resolution recorded in the image (default: 96)",
+            "  --threads <n>            files processed at once (default: available cores)",
+            "  --no-cache               always parse the CSV; don't read or write dataset snapshots",
+            "  --approx <counters>      stream each file in fixed memory, tracking the top titles with",
+            "                           this many counters (GameName grouping and slices CSV only)",
+            "  --where <expr>           only rows matching expr, e.g. \"Genre = 'Strategy' and Releaseyear >= 2010\"",
+            "  --serve [host:]port      serve JSON views of the merged inputs instead of writing files",
+            "                           (host defaults to 127.0.0.1; --threads sizes the request pool)",
+            "  --follow                 with --serve and one input, publish rows appended to it");
+
+    private final List<File> inputs = new ArrayList<>();
+    private File outDir = new File(".");
+    private boolean showOthers = false;
+    private int maxDisplay = 10;
+    private double threshold = 0.0;
+    private final Set<EarningsCube.Dimension> grouping = EnumSet.noneOf(EarningsCube.Dimension.class);
+    private String csvKind = "slices";
+    private CsvExporter.Order csvOrder = CsvExporter.Order.EARNINGS;
+    private boolean gzip = false;
+    private String format = "png";
+    private int width = EsportEarningsAnalyzer.EXPORT_WIDTH;
+    private int height = EsportEarningsAnalyzer.EXPORT_HEIGHT;
+    private int dpi = 96;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean useCache = true;
+    private RowFilter where;
+    private int approxCounters = 0; // 0 for exact aggregation
+    private java.net.InetSocketAddress serveAddress;
+    private boolean follow = false;
+
+    /** Returns the process exit code: 0 on success, 1 if any input failed, 2 on bad usage. */
+    static int run(String[] args) {
+        BatchCli cli = new BatchCli();
+        try {
+            if (!cli.parse(args)) {
+                System.out.println(USAGE);
+                return 0;
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        return cli.serveAddress != null ? cli.serve() : cli.processAll();
+    }
+
+    // Returns false when only help was requested.
+    private boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--help") || arg.equals("-h")) return false;
+            if (arg.equals("--gzip")) {
+                gzip = true;
+                continue;
+            }
+            if (arg.equals("--no-cache")) {
+                useCache = false;
+                continue;
+            }
+            if (arg.equals("--follow")) {
+                follow = true;
+                continue;
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            switch (arg) {
+                case "--batch": addInputs(new File(value)); break;
+                case "--out": outDir = new File(value); break;
+                case "--top": showOthers = false; maxDisplay = positiveInt(arg, value); break;
+                case "--threshold": showOthers = true; threshold = number(arg, value); break;
+                case "--group": grouping.addAll(EarningsCube.parseGrouping(value)); break;
+                case "--csv":
+                    csvKind = value.toLowerCase(Locale.ROOT);
+                    if (!Arrays.asList("slices", "totals", "rows", "none").contains(csvKind))
+                        throw new IllegalArgumentException("Unknown CSV kind: " + value);
+                    break;
+                case "--order":
+                    switch (value.toLowerCase(Locale.ROOT)) {
+                        case "earnings": csvOrder = CsvExporter.Order.EARNINGS; break;
+                        case "name": csvOrder = CsvExporter.Order.NAME; break;
+                        case "file": csvOrder = CsvExporter.Order.ORIGINAL; break;
+                        default: throw new IllegalArgumentException("Unknown order: " + value);
+                    }
+                    break;
+                case "--format":
+                    format = value.toLowerCase(Locale.ROOT).equals("jpeg") ? "jpg" : value.toLowerCase(Locale.ROOT);
+                    if (!format.equals("png") && !format.equals("jpg") && !format.equals("none"))
+                        throw new IllegalArgumentException("Unknown format: " + value);
+                    break;
+                case "--size":
+                    String[] parts = value.toLowerCase(Locale.ROOT).split("x");
+                    if (parts.length != 2) throw new IllegalArgumentException("Size must look like 1600x1200: " + value);
+                    width = positiveInt(arg, parts[0]);
+                    height = positiveInt(arg, parts[1]);
+                    break;
+                case "--dpi": dpi = positiveInt(arg, value); break;
+                case "--threads": threads = positiveInt(arg, value); break;
+                case "--where": where = RowFilter.parse(value); break;
+                case "--approx": approxCounters = positiveInt(arg, value); break;
+                case "--serve":
+                    int colon = value.lastIndexOf(':');
+                    String host = colon < 0 ? "127.0.0.1" : value.substring(0, colon);
+                    int port = colon < 0 ? positiveInt(arg, value) : positiveInt(arg, value.substring(colon + 1));
+                    serveAddress = new java.net.InetSocketAddress(host, port);
+                    break;
+                default: throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (inputs.isEmpty()) throw new IllegalArgumentException("No input files (use --batch <file|dir>)");
+        if (follow && (serveAddress == null || inputs.size() != 1))
+            throw new IllegalArgumentException("--follow needs --serve and exactly one input file");
+        if (approxCounters > 0 && (serveAddress != null || !grouping.isEmpty()
+                || csvKind.equals("totals") || csvKind.equals("rows")))
+            throw new IllegalArgumentException("--approx works with the default grouping and --csv slices or none, without --serve");
+        return true;
+    }
+
+    private void addInputs(File path) {
+        if (path.isDirectory()) {
+            File[] files = path.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".csv"));
+            if (files == null) throw new IllegalArgumentException("Cannot list directory: " + path);
+            Arrays.sort(files);
+            inputs.addAll(Arrays.asList(files));
+        } else if (path.isFile()) {
+            inputs.add(path);
+        } else {
+            throw new IllegalArgumentException("No such file or directory: " + path);
+        }
+    }
+
+    private static int positiveInt(String option, String value) {
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n > 0) return n;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException(option + " expects a positive whole number: " + value);
+    }
+
+    private static double number(String option, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number: " + value);
+        }
+    }
+
+    private int processAll() {
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            System.err.println("Cannot create output directory: " + outDir);
+            return 1;
+        }
+        int workers = Math.max(1, Math.min(threads, inputs.size()));
+        // With several files the parallelism is across files, so each file is read on one thread.
+        boolean splitFiles = workers == 1;
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(workers);
+        long start = System.nanoTime();
+        int failed = 0;
+        try {
+            List<java.util.concurrent.Future<Boolean>> results = new ArrayList<>();
+            for (File input : inputs) {
+                results.add(pool.submit(() -> process(input, splitFiles)));
+            }
+            for (java.util.concurrent.Future<Boolean> result : results) {
+                try {
+                    if (!result.get()) failed++;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        } finally {
+            pool.shutdownNow();
+        }
+        System.out.printf(Locale.ROOT, "%d file(s), %d failed, %.0f ms%n",
+                inputs.size(), failed, millisSince(start));
+        return failed == 0 ? 0 : 1;
+    }
+
+    // Loads and merges every input, then serves it until the process is stopped.
+    private int serve() {
+        EarningsLoader.Progress quiet = new EarningsLoader.Progress() {
+            public void update(long rows, long bytes) { }
+            public boolean isCancelled() { return false; }
+        };
+        long start = System.nanoTime();
+        EarningsLoader.LoadResult loaded;
+        try {
+            loaded = EarningsLoader.loadAll(inputs, quiet, useCache ? Runnable::run : null);
+        } catch (IOException e) {
+            System.err.println("Cannot load inputs: " + e.getMessage());
+            return 1;
+        }
+        EarningsDataset dataset = EsportEarningsAnalyzer.filterRows(loaded.dataset, where).dataset;
+        for (EarningsLoader.FileStats file : loaded.files) {
+            if (file.error != null) System.err.println(file.file.getName() + ": FAILED - " + file.error);
+        }
+        try {
+            EarningsServer server = new EarningsServer(serveAddress, threads);
+            server.publish(dataset, loaded.files);
+            server.start();
+            TailFollower follower = follow ? followInto(server, loaded.dataset, loaded.files) : null;
+            // Runs until the process is stopped; the hook closes the server on the way out.
+            java.util.concurrent.CountDownLatch stopped = new java.util.concurrent.CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (follower != null) follower.close();
+                server.close();
+                stopped.countDown();
+            }));
+            System.out.printf(Locale.ROOT, "Serving %d rows from %d file(s) on http://%s:%d/api/earnings (ready in %.0f ms)%n",
+                    dataset.rowCount, inputs.size(), serveAddress.getHostString(), server.address().getPort(),
+                    millisSince(start));
+            stopped.await();
+            return 0;
+        } catch (IOException e) {
+            System.err.println("Cannot start server on " + serveAddress + ": " + e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    // Publishes each batch of appended rows as a new version.
+    private TailFollower followInto(EarningsServer server, EarningsDataset dataset,
+                                    List<EarningsLoader.FileStats> files) throws IOException {
+        TailFollower follower = new TailFollower(inputs.get(0), dataset, new TailFollower.Listener() {
+            public void appended(TailFollower source, EarningsDataset updated, int newRows, long rejectedRows) {
+                server.publish(EsportEarningsAnalyzer.filterRows(updated, where).dataset, files);
+                System.out.printf(Locale.ROOT, "%s: %d new rows published%n", inputs.get(0).getName(), newRows);
+            }
+
+            public void reset(TailFollower source) {
+                System.err.println(inputs.get(0).getName() + " was truncated or replaced; restart to reload it.");
+                source.close();
+            }
+
+            public void failed(TailFollower source, IOException error) {
+                System.err.println("Stopped following " + inputs.get(0).getName() + ": " + error.getMessage());
+            }
+        });
+        follower.start();
+        return follower;
+    }
+
+    private boolean process(File input, boolean splitFile) {
+        if (approxCounters > 0) return processApproximate(input);
+        try {
+            long start = System.nanoTime();
+            Perf.LoadEvent loadEvent = new Perf.LoadEvent();
+            loadEvent.begin();
+            EarningsLoader.Progress quiet = new EarningsLoader.Progress() {
+                public void update(long rows, long bytes) { }
+                public boolean isCancelled() { return false; }
+            };
+            EarningsDataset dataset = useCache ? EarningsSnapshot.load(input) : null;
+            boolean fromSnapshot = dataset != null;
+            if (dataset == null) {
+                EarningsSnapshot.Key key = useCache ? EarningsSnapshot.Key.of(input) : null;
+                dataset = splitFile ? EarningsLoader.load(input, quiet) : EarningsLoader.loadSequential(input, quiet);
+                // Written in line: the process may exit as soon as the last file is done.
+                if (key != null) EarningsSnapshot.save(key, dataset);
+            }
+            Perf.loadFinished(loadEvent, input, dataset, start, fromSnapshot);
+            long loaded = System.nanoTime();
+            long allRows = dataset.rowCount;
+            if (where != null) dataset = where.select(dataset);
+
+            EarningsTable earnings;
+            EarningsCube.Group group = null;
+            if (grouping.isEmpty()) {
+                earnings = dataset.earningsByGame();
+            } else {
+                group = dataset.cube().groupBy(grouping);
+                earnings = group.earnings;
+            }
+            EsportEarningsAnalyzer.ChartViewModel view = EsportEarningsAnalyzer.buildViewModel(
+                    new EsportEarningsAnalyzer.FilterQuery(earnings, group,
+                            EsportEarningsAnalyzer.groupingLabel(grouping), EsportEarningsAnalyzer.chartTitle(grouping),
+                            showOthers, maxDisplay, threshold, dataset.rowCount, dataset.rejectedRows, "", null, 0, false));
+            long aggregated = System.nanoTime();
+
+            String base = input.getName().replaceFirst("(?i)\\.csv$", "");
+            if (!csvKind.equals("none")) {
+                File csvFile = new File(outDir, base + "-" + csvKind + (gzip ? ".csv.gz" : ".csv"));
+                try (CsvWriter out = new CsvWriter(csvFile, gzip)) {
+                    switch (csvKind) {
+                        case "totals": CsvExporter.writeTotals(out, dataset, grouping, csvOrder, true, true); break;
+                        case "rows": CsvExporter.writeRows(out, dataset, csvOrder); break;
+                        default: writeSlices(out, view);
+                    }
+                }
+            }
+            if (!format.equals("none")) {
+                EsportEarningsAnalyzer.writeChartImage(view, format, new File(outDir, base + "-chart." + format),
+                        width, height, dpi);
+            }
+            long written = System.nanoTime();
+
+            System.out.printf(Locale.ROOT,
+                    "%s: %d rows (%d rejected)%s, %d slices, %s %.0f ms, aggregate %.0f ms, write %.0f ms, total %.0f ms%n",
+                    input.getName(), allRows, dataset.rejectedRows,
+                    where == null ? "" : String.format(Locale.ROOT, ", %d matched", dataset.rowCount), view.entries.size(),
+                    fromSnapshot ? "snapshot" : "parse",
+                    (loaded - start) / 1e6, (aggregated - loaded) / 1e6, (written - aggregated) / 1e6,
+                    (written - start) / 1e6);
+            return true;
+        } catch (Exception e) {
+            System.err.println(input.getName() + ": FAILED - " + e);
+            return false;
+        }
+    }
+
+    private boolean processApproximate(File input) {
+        try {
+            long start = System.nanoTime();
+            EarningsLoader.Progress quiet = new EarningsLoader.Progress() {
+                public void update(long rows, long bytes) { }
+                public boolean isCancelled() { return false; }
+            };
+            EarningsSketch sketch = EarningsLoader.loadApproximate(Collections.singletonList(input), where,
+                    approxCounters, quiet).sketch;
+            EsportEarningsAnalyzer.ChartViewModel view = EsportEarningsAnalyzer.buildViewModel(
+                    new EsportEarningsAnalyzer.FilterQuery(sketch.table(), null,
+                            EsportEarningsAnalyzer.groupingLabel(grouping),
+                            EsportEarningsAnalyzer.chartTitle(grouping) + " (approximate)",
+                            showOthers, maxDisplay, threshold, sketch.rowCount(), sketch.rejectedRows(), "", sketch, 0, false));
+            long aggregated = System.nanoTime();
+
+            String base = input.getName().replaceFirst("(?i)\\.csv$", "");
+            if (!csvKind.equals("none")) {
+                try (CsvWriter out = new CsvWriter(new File(outDir, base + "-slices" + (gzip ? ".csv.gz" : ".csv")), gzip)) {
+                    writeSlices(out, view);
+                }
+            }
+            if (!format.equals("none")) {
+                EsportEarningsAnalyzer.writeChartImage(view, format, new File(outDir, base + "-chart." + format),
+                        width, height, dpi);
+            }
+            long written = System.nanoTime();
+
+            System.out.printf(Locale.ROOT,
+                    "%s: %d rows (%d rejected)%s, %d slices, ~%d titles, max error %.2f, stream %.0f ms, write %.0f ms%n",
+                    input.getName(), sketch.rowCount(), sketch.rejectedRows(),
+                    where == null ? "" : String.format(Locale.ROOT, ", %d matched", sketch.matchedRows()),
+                    view.entries.size(), sketch.distinctTitles(), sketch.maxError(),
+                    (aggregated - start) / 1e6, (written - aggregated) / 1e6);
+            return true;
+        } catch (Exception e) {
+            System.err.println(input.getName() + ": FAILED - " + e);
+            return false;
+        }
+    }
+
+    // One row per chart slice, in chart order.
+    private static void writeSlices(CsvWriter out, EsportEarningsAnalyzer.ChartViewModel view) throws IOException {
+        out.field(view.groupingLabel);
+        out.field("TotalEarnings");
+        out.field("Percent");
+        out.endRecord();
+        for (Map.Entry<String, Double> entry : view.entries) {
+            out.field(entry.getKey());
+            out.cents(Math.round(entry.getValue() * 100));
+            out.field(String.format(Locale.ROOT, "%.4f", view.total > 0 ? entry.getValue() / view.total * 100 : 0));
+            out.endRecord();
+        }
+    }
+
+    private static double millisSince(long start) {
+        return (System.nanoTime() - start) / 1e6;
+    }
+}
+
+/**
+ * EarningsServer serves the loaded dataset's Top-N and threshold views as JSON over
+ * the JDK's built-in HTTP server, so the web page can fetch a small filtered view
+ * instead of parsing the whole CSV in the browser.
+ *
+ * Requests read one immutable Snapshot, which publish() replaces atomically. The
+ * snapshot's version is the ETag, so a client revalidating with If-None-Match gets
+ * 304 until new data is published. Encoded bodies are cached per snapshot, and
+ * requests run on a bounded pool; when its queue is full, the accepting thread runs
+ * the request itself, which throttles new connections.
+ *
+ * <pre>
+ * GET /api/dataset                                  rows, years, groupings, files
+ * GET /api/earnings?group=genre,country&amp;top=10     top n plus "Other"
+ * GET /api/earnings?threshold=50000&amp;year=2015      entries at or above threshold
+ * </pre>
+ */
+class EarningsServer implements Closeable {
+    // Bodies smaller than this go out uncompressed; gzip would barely shrink them.
+    private static final int GZIP_MIN_BYTES = 1024;
+    private static final int MAX_TOP = 1000;
+    private static final int CACHED_BODIES = 256;
+
+    /** One published dataset; never changes once created. */
+    private static final class Snapshot {
+        final EarningsDataset dataset;
+        final List<EarningsLoader.FileStats> files;
+        final String version;
+        final Map<String, byte[]> bodies = Collections.synchronizedMap(new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > CACHED_BODIES;
+            }
+        });
+
+        Snapshot(EarningsDataset dataset, List<EarningsLoader.FileStats> files, String version) {
+            this.dataset = dataset;
+            this.files = files;
+            this.version = version;
+        }
+    }
+
+    private final com.sun.net.httpserver.HttpServer server;
+    private final java.util.concurrent.ThreadPoolExecutor executor;
+    // Distinguishes versions across restarts, so a stale browser cache never matches.
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final java.util.concurrent.atomic.AtomicLong versions = new java.util.concurrent.atomic.AtomicLong();
+    private volatile Snapshot current;
+
+    EarningsServer(java.net.InetSocketAddress address, int threads) throws IOException {
+        executor = new java.util.concurrent.ThreadPoolExecutor(threads, threads, 0L, java.util.concurrent.TimeUnit.MILLISECONDS,
+                new java.util.concurrent.ArrayBlockingQueue<>(threads * 16), r -> {
+                    Thread thread = new Thread(r, "earnings-http");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy());
+        server = com.sun.net.httpserver.HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/api/dataset", exchange -> handle(exchange, datasetBody));
+        server.createContext("/api/earnings", exchange -> handle(exchange, earningsBody));
+    }
+
+    /** Makes dataset (with its aggregates built) the one all later requests see. */
+    void publish(EarningsDataset dataset, List<EarningsLoader.FileStats> files) {
+        current = new Snapshot(dataset, files, epoch + "." + versions.incrementAndGet());
+    }
+
+    void start() {
+        server.start();
+    }
+
+    java.net.InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private interface Body {
+        /** Returns the cache key for the query; body() is only called on a cache miss. */
+        String key(Snapshot snapshot, Map<String, String> query);
+
+        String body(Snapshot snapshot, Map<String, String> query);
+    }
+
+    private final Body datasetBody = new Body() {
+        public String key(Snapshot snapshot, Map<String, String> query) {
+            return "dataset";
+        }
+
+        public String body(Snapshot snapshot, Map<String, String> query) {
+            EarningsDataset dataset = snapshot.dataset;
+            EarningsTimeline timeline = dataset.timeline();
+            StringBuilder json = new StringBuilder();
+            json.append("{\"version\":");
+            string(json, snapshot.version);
+            json.append(",\"rows\":").append(dataset.rowCount);
+            json.append(",\"rejectedRows\":").append(dataset.rejectedRows);
+            json.append(",\"bytes\":").append(dataset.bytes);
+            json.append(",\"groupings\":[\"game\"");
+            for (Set<EarningsCube.Dimension> dimensions : EarningsCube.groupings()) {
+                json.append(',');
+                string(json, groupingParameter(dimensions));
+            }
+            json.append("],\"years\":[");
+            for (int i = 0; i < timeline.size(); i++) {
+                if (i > 0) json.append(',');
+                json.append(timeline.yearAt(i));
+            }
+            json.append("],\"files\":[");
+            for (int i = 0; i < snapshot.files.size(); i++) {
+                EarningsLoader.FileStats file = snapshot.files.get(i);
+                if (i > 0) json.append(',');
+                json.append("{\"name\":");
+                string(json, file.file.getName());
+                if (file.error != null) {
+                    json.append(",\"error\":");
+                    string(json, String.valueOf(file.error.getMessage()));
+                } else {
+                    json.append(",\"rows\":").append(file.rows).append(",\"rejectedRows\":").append(file.rejectedRows);
+                }
+                json.append('}');
+            }
+            return json.append("]}").toString();
+        }
+    };
+
+    private final Body earningsBody = new Body() {
+        public String key(Snapshot snapshot, Map<String, String> query) {
+            Set<EarningsCube.Dimension> grouping = EarningsCube.parseGrouping(query.getOrDefault("group", ""));
+            String threshold = query.get("threshold");
+            String mode = threshold != null ? "threshold=" + number("threshold", threshold)
+                    : "top=" + top(query.getOrDefault("top", "10"));
+            String year = query.get("year");
+            return "earnings?" + groupingParameter(grouping) + "&" + mode + (year != null ? "&year=" + year(year) : "");
+        }
+
+        public String body(Snapshot snapshot, Map<String, String> query) {
+            EarningsDataset dataset = snapshot.dataset;
+            Set<EarningsCube.Dimension> grouping = EarningsCube.parseGrouping(query.getOrDefault("group", ""));
+            boolean showOthers = query.containsKey("threshold");
+            double threshold = showOthers ? number("threshold", query.get("threshold")) : 0;
+            int top = showOthers ? 0 : top(query.getOrDefault("top", "10"));
+            EarningsTable data = grouping.isEmpty() ? dataset.earningsByGame() : dataset.cube().groupBy(grouping).earnings;
+            String title = EsportEarningsAnalyzer.chartTitle(grouping);
+            if (query.containsKey("year")) {
+                int year = year(query.get("year"));
+                EarningsTimeline timeline = dataset.timeline();
+                int index = timeline.indexAtOrBefore(year);
+                data = index >= 0 ? timeline.frame(grouping, index) : new EarningsTable();
+                title += " through " + year;
+            }
+            Map<String, Double> filtered = EsportEarningsAnalyzer.getFilteredData(data, showOthers, top, threshold);
+            double total = 0;
+            for (double value : filtered.values()) total += value;
+
+            StringBuilder json = new StringBuilder(64 + filtered.size() * 64);
+            json.append("{\"version\":");
+            string(json, snapshot.version);
+            json.append(",\"grouping\":");
+            string(json, EsportEarningsAnalyzer.groupingLabel(grouping));
+            json.append(",\"title\":");
+            string(json, title);
+            json.append(",\"mode\":\"").append(showOthers ? "threshold" : "top").append('"');
+            json.append(",\"size\":").append(data.size());
+            json.append(",\"max\":").append(data.isEmpty() ? 0 : data.rankIndex().valueAt(0));
+            if (showOthers) json.append(",\"matched\":").append(data.rankIndex().countAtLeast(threshold));
+            json.append(",\"total\":").append(total);
+            json.append(",\"entries\":[");
+            boolean first = true;
+            for (Map.Entry<String, Double> entry : filtered.entrySet()) {
+                if (!first) json.append(',');
+                first = false;
+                json.append("{\"label\":");
+                string(json, entry.getKey());
+                json.append(",\"value\":").append(entry.getValue());
+                json.append(",\"percent\":").append(total > 0 ? entry.getValue() / total * 100 : 0);
+                json.append('}');
+            }
+            return json.append("]}").toString();
+        }
+    };
+
+    private void handle(com.sun.net.httpserver.HttpExchange exchange, Body body) throws IOException {
+        try (exchange) {
+            com.sun.net.httpserver.Headers headers = exchange.getResponseHeaders();
+            // The page may be opened from disk or another port.
+            headers.set("Access-Control-Allow-Origin", "*");
+            headers.set("Access-Control-Expose-Headers", "ETag");
+            String method = exchange.getRequestMethod();
+            if (method.equals("OPTIONS")) {
+                headers.set("Access-Control-Allow-Methods", "GET, HEAD, OPTIONS");
+                headers.set("Access-Control-Allow-Headers", "If-None-Match");
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                headers.set("Allow", "GET, HEAD, OPTIONS");
+                send(exchange, 405, error("Method not allowed"), false);
+                return;
+            }
+            Snapshot snapshot = current;
+            if (snapshot == null) {
+                send(exchange, 503, error("No dataset loaded yet"), false);
+                return;
+            }
+            Map<String, String> query;
+            String key;
+            try {
+                query = parseQuery(exchange.getRequestURI().getRawQuery());
+                key = body.key(snapshot, query);
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()), false);
+                return;
+            }
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = accept != null && accept.toLowerCase(Locale.ROOT).contains("gzip");
+            byte[] identity = cached(snapshot, key,
+                    () -> body.body(snapshot, query).getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            gzip &= identity.length >= GZIP_MIN_BYTES;
+            String etag = "\"" + snapshot.version + (gzip ? "-gz" : "") + "\"";
+            headers.set("ETag", etag);
+            headers.set("Vary", "Accept-Encoding");
+            // Cache, but revalidate every time: a new dataset must show up on the next fetch.
+            headers.set("Cache-Control", "no-cache");
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] payload = gzip ? cached(snapshot, key + "#gzip", () -> gzip(identity)) : identity;
+            if (gzip) headers.set("Content-Encoding", "gzip");
+            send(exchange, 200, payload, method.equals("HEAD"));
+        } catch (RuntimeException e) {
+            System.err.println("Request failed: " + exchange.getRequestURI() + ": " + e);
+            throw e;
+        }
+    }
+
+    // Encodes outside the lock so one slow body doesn't hold up the others; a race only costs a duplicate encode.
+    private static byte[] cached(Snapshot snapshot, String key, java.util.function.Supplier<byte[]> encode) {
+        byte[] body = snapshot.bodies.get(key);
+        if (body == null) {
+            body = encode.get();
+            snapshot.bodies.putIfAbsent(key, body);
+        }
+        return body;
+    }
+
+    private static void send(com.sun.net.httpserver.HttpExchange exchange, int status, byte[] body,
+                             boolean headOnly) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        if (headOnly) {
+            exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    // If-None-Match may list several tags, weak or strong; either matches for a GET.
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream(data.length / 4 + 64);
+        try (java.util.zip.GZIPOutputStream gzip = new java.util.zip.GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        string(json, message);
+        return json.append('}').toString().getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            try {
+                query.put(java.net.URLDecoder.decode(name, java.nio.charset.StandardCharsets.UTF_8),
+                        java.net.URLDecoder.decode(value, java.nio.charset.StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed query parameter: " + pair);
+            }
+        }
+        return query;
+    }
+
+    static String groupingParameter(Set<EarningsCube.Dimension> dimensions) {
+        if (dimensions.isEmpty()) return "game";
+        StringBuilder value = new StringBuilder();
+        for (EarningsCube.Dimension dimension : dimensions) {
+            if (value.length() > 0) value.append(',');
+            switch (dimension) {
+                case GENRE: value.append("genre"); break;
+                case TOP_COUNTRY: value.append("country"); break;
+                default: value.append("year");
+            }
+        }
+        return value.toString();
+    }
+
+    private static int top(String value) {
+        try {
+            int n = Integer.parseInt(value.trim());
+            if (n >= 0 && n <= MAX_TOP) return n;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("top must be a whole number from 0 to " + MAX_TOP + ": " + value);
+    }
+
+    private static int year(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("year must be a whole number: " + value);
+        }
+    }
+
+    private static double number(String name, String value) {
+        try {
+            double n = Double.parseDouble(value.trim());
+            if (Double.isFinite(n)) return n;
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException(name + " must be a number: " + value);
+    }
+
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
+
+/**
+ * Perf is the analyzer's built-in instrumentation: JDK Flight Recorder events for the
+ * expensive steps, plus a rolling window of recent timings per step for the metrics
+ * overlay. Events cost next to nothing unless a recording is running, e.g.
+ * java -XX:StartFlightRecording=filename=analyzer.jfr EsportEarningsAnalyzer
+ */
+final class Perf {
+    static final Timings LOAD = new Timings("load");
+    static final Timings RECOMPUTE = new Timings("recompute");
+    static final Timings LEGEND = new Timings("legend");
+    static final Timings PAINT = new Timings("paint");
+
+    private static volatile long lastLoadRows;
+    private static volatile long lastLoadNanos;
+
+    private Perf() {
+    }
+
+    static void loadFinished(LoadEvent event, File file, EarningsDataset dataset, long startNanos, boolean fromSnapshot) {
+        long nanos = System.nanoTime() - startNanos;
+        LOAD.record(nanos);
+        lastLoadRows = dataset.rowCount;
+        lastLoadNanos = nanos;
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.bytes = dataset.bytes;
+            event.rows = dataset.rowCount;
+            event.rejectedRows = dataset.rejectedRows;
+            event.rowsPerSecond = nanos > 0 ? dataset.rowCount * 1e9 / nanos : 0;
+            event.fromSnapshot = fromSnapshot;
+            event.commit();
+        }
+    }
+
+    static double lastLoadMillis() {
+        return lastLoadNanos / 1e6;
+    }
+
+    static double lastLoadRowsPerSecond() {
+        long nanos = lastLoadNanos;
+        return nanos > 0 ? lastLoadRows * 1e9 / nanos : 0;
+    }
+
+    @jdk.jfr.Name("esports.Load")
+    @jdk.jfr.Label("Dataset Load")
+    @jdk.jfr.Category("Esports Earnings Analyzer")
+    @jdk.jfr.StackTrace(false)
+    static class LoadEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("File")
+        String file;
+        @jdk.jfr.Label("Bytes")
+        @jdk.jfr.DataAmount
+        long bytes;
+        @jdk.jfr.Label("Rows")
+        long rows;
+        @jdk.jfr.Label("Rejected Rows")
+        long rejectedRows;
+        @jdk.jfr.Label("Rows per Second")
+        double rowsPerSecond;
+        @jdk.jfr.Label("From Snapshot")
+        boolean fromSnapshot;
+    }
+
+    @jdk.jfr.Name("esports.Recompute")
+    @jdk.jfr.Label("Chart Recompute")
+    @jdk.jfr.Category("Esports Earnings Analyzer")
+    @jdk.jfr.StackTrace(false)
+    static class RecomputeEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Filter Mode")
+        String filterMode;
+        @jdk.jfr.Label("Grouping")
+        String grouping;
+        @jdk.jfr.Label("Table Size")
+        int tableSize;
+        @jdk.jfr.Label("Entries")
+        int entries;
+    }
+
+    @jdk.jfr.Name("esports.LegendRebuild")
+    @jdk.jfr.Label("Legend Rebuild")
+    @jdk.jfr.Category("Esports Earnings Analyzer")
+    @jdk.jfr.StackTrace(false)
+    static class LegendEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Rows")
+        int rows;
+    }
+
+    @jdk.jfr.Name("esports.ChartPaint")
+    @jdk.jfr.Label("Chart Paint")
+    @jdk.jfr.Category("Esports Earnings Analyzer")
+    @jdk.jfr.StackTrace(false)
+    static class PaintEvent extends jdk.jfr.Event {
+        @jdk.jfr.Label("Width")
+        int width;
+        @jdk.jfr.Label("Height")
+        int height;
+        @jdk.jfr.Label("Slices")
+        int slices;
+        @jdk.jfr.Label("Geometry Rebuilt")
+        boolean geometryRebuilt;
+        @jdk.jfr.Label("Animating")
+        boolean animating;
+    }
+
+    /** The most recent durations of one step, in a fixed ring; thread-safe. */
+    static final class Timings {
+        private static final int WINDOW = 512;
+
+        final String name;
+        private final long[] nanos = new long[WINDOW];
+        private long count;
+
+        Timings(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(long durationNanos) {
+            nanos[(int) (count++ % WINDOW)] = durationNanos;
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        /** {p50, p95, p99, max} in milliseconds over the window, or null before the first sample. */
+        double[] percentiles() {
+            long[] window;
+            synchronized (this) {
+                if (count == 0) return null;
+                window = Arrays.copyOf(nanos, (int) Math.min(count, WINDOW));
+            }
+            Arrays.sort(window);
+            return new double[] {at(window, 0.50), at(window, 0.95), at(window, 0.99), window[window.length - 1] / 1e6};
+        }
+
+        private static double at(long[] sorted, double quantile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
+
+/**
+ * MetricsOverlay is a glass pane that shows live timing percentiles and heap use
+ * over the window. It has no mouse listeners, so input passes through to the UI
+ * underneath, and it only samples while it is visible.
+ */
+class MetricsOverlay extends JComponent {
+    private static final Font FONT = new Font(Font.MONOSPACED, Font.PLAIN, 12);
+    private static final Color BACKGROUND = new Color(0, 0, 0, 190);
+    private static final Color TEXT = new Color(120, 255, 140);
+
+    private final javax.swing.Timer refresh = new javax.swing.Timer(500, e -> repaint());
+    private final Perf.Timings[] timings = {Perf.RECOMPUTE, Perf.LEGEND, Perf.PAINT};
+
+    MetricsOverlay() {
+        setOpaque(false);
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+        if (visible) refresh.start();
+        else refresh.stop();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        List<String> lines = new ArrayList<>();
+        lines.add("Metrics (F12 to hide)     p50     p95     p99     max  ms");
+        lines.add(Perf.LOAD.count() == 0 ? "load       -"
+                : String.format(Locale.ROOT, "load       last %,.0f ms, %,.0f rows/s",
+                        Perf.lastLoadMillis(), Perf.lastLoadRowsPerSecond()));
+        for (Perf.Timings t : timings) {
+            double[] p = t.percentiles();
+            lines.add(p == null ? String.format(Locale.ROOT, "%-10s -", t.name)
+                    : String.format(Locale.ROOT, "%-10s %7.2f %7.2f %7.2f %7.2f  (n=%d)",
+                            t.name, p[0], p[1], p[2], p[3], t.count()));
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        lines.add(String.format(Locale.ROOT, "heap       %,d / %,d MB (max %,d MB)",
+                used >> 20, runtime.totalMemory() >> 20, runtime.maxMemory() >> 20));
+
+        Graphics2D g2d = (Graphics2D) g.create();
+        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2d.setFont(FONT);
+        FontMetrics fm = g2d.getFontMetrics();
+        int width = 0;
+        for (String line : lines) width = Math.max(width, fm.stringWidth(line));
+        int x = 12, y = 12, pad = 8;
+        int height = lines.size() * fm.getHeight();
+        g2d.setColor(BACKGROUND);
+        g2d.fillRoundRect(x, y, width + 2 * pad, height + 2 * pad, 10, 10);
+        g2d.setColor(TEXT);
+        for (int i = 0; i < lines.size(); i++) {
+            g2d.drawString(lines.get(i), x + pad, y + pad + fm.getAscent() + i * fm.getHeight());
+        }
+        g2d.dispose();
+    }
+}
+
+/**
+ * RecomputeScheduler coalesces bursts of UI requests into at most one background
+ * computation per frame. Only the newest request is computed, and each result is
+ * applied on the EDT as soon as it is ready, even if newer requests arrived while it
+ * ran, so the view keeps up during a drag; the newest request is then started on the
+ * next frame. request() must be called on the EDT.
+ */
+class RecomputeScheduler<Q, R> {
+    private static final int FRAME_MILLIS = 16;
+
+    private final java.util.function.Function<Q, R> compute;
+    private final java.util.function.Consumer<R> apply;
+    private final java.util.concurrent.ExecutorService worker;
+    private final javax.swing.Timer frameTimer;
+
+    // Confined to the EDT.
+    private Q pending;
+    private long latest;
+    private long applied; // generation of the result on screen
+    private boolean running;
+
+    RecomputeScheduler(String name, java.util.function.Function<Q, R> compute, java.util.function.Consumer<R> apply) {
+        this.compute = compute;
+        this.apply = apply;
+        this.worker = java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        frameTimer = new javax.swing.Timer(FRAME_MILLIS, e -> startPending());
+        frameTimer.setRepeats(false);
+    }
+
+    void request(Q query) {
+        pending = query;
+        latest++;
+        if (!running && !frameTimer.isRunning()) frameTimer.start();
+    }
+
+    private void startPending() {
+        if (pending == null || running) return;
+        Q query = pending;
+        pending = null;
+        long generation = latest;
+        running = true;
+        worker.execute(() -> {
+            R result = null;
+            RuntimeException failure = null;
+            try {
+                result = compute.apply(query);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            R finished = result;
+            RuntimeException error = failure;
+            SwingUtilities.invokeLater(() -> {
+                running = false;
+                // Requests that arrived meanwhile get the next frame.
+                if (pending != null) frameTimer.restart();
+                // Still newer than what is on screen unless a later result already landed.
+                if (generation <= applied) return;
+                applied = generation;
+                if (error != null) throw error;
+                apply.accept(finished);
+            });
+        });
+    }
+}
+
+/**
+ * EarningsLoader reads a CSV export into an EarningsDataset. It has no Swing
+ * dependencies so it can run on any thread; progress and cancellation go
+ * through the Progress callback.
+ *
+ * Large files are memory-mapped and split at line boundaries into chunks that are
+ * parsed in parallel on a fork/join pool, each into its own partial dataset.
+ * Several files are loaded concurrently, one thread per file, and concatenated.
+ */
+class EarningsLoader {
+    // How often (in records) progress is reported and cancellation is checked.
+    private static final int PROGRESS_INTERVAL = 16 * 1024;
+    // Files smaller than this are cheaper to read on one thread.
+    private static final long PARALLEL_MIN_BYTES = 8L << 20;
+    private static final long MIN_CHUNK_BYTES = 4L << 20;
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+    // Rows held at once by an approximate load.
+    private static final int SKETCH_CHUNK_ROWS = 64 * 1024;
+
+    interface Progress {
+        void update(long rows, long bytes);
+        boolean isCancelled();
+    }
+
+    /** How one file of a multi-file load went; error is null when it loaded. */
+    static final class FileStats {
+        final File file;
+        final int rows;
+        final long rejectedRows;
+        final long nanos;
+        final boolean fromSnapshot;
+        final Exception error;
+
+        FileStats(File file, int rows, long rejectedRows, long nanos, boolean fromSnapshot, Exception error) {
+            this.file = file;
+            this.rows = rows;
+            this.rejectedRows = rejectedRows;
+            this.nanos = nanos;
+            this.fromSnapshot = fromSnapshot;
+            this.error = error;
+        }
+    }
+
+    /** The merged dataset of a multi-file load, with per-file stats in the order the files were given. */
+    static final class LoadResult {
+        final EarningsDataset dataset; // null for an approximate load
+        final EarningsSketch sketch; // null for an exact load
+        final List<FileStats> files;
+        final long nanos;
+
+        LoadResult(EarningsDataset dataset, List<FileStats> files, long nanos) {
+            this(dataset, null, files, nanos);
+        }
+
+        LoadResult(EarningsDataset dataset, EarningsSketch sketch, List<FileStats> files, long nanos) {
+            this.dataset = dataset;
+            this.sketch = sketch;
+            this.files = files;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Loads every file concurrently, each into its own partial dataset, then concatenates
+     * the partials in file order in one step. Each file goes through loadCached with its
+     * share of the cores. A file that fails is reported in the stats and left out; the
+     * load only fails when none of the files could be read. A null snapshotWriter
+     * bypasses snapshots entirely.
+     */
+    static LoadResult loadAll(List<File> files, Progress progress,
+                              java.util.concurrent.Executor snapshotWriter) throws IOException {
+        long start = System.nanoTime();
+        int workers = Math.max(1, Runtime.getRuntime().availableProcessors() / files.size());
+        ParallelProgress shared = new ParallelProgress(progress);
+        java.util.concurrent.ExecutorService executor = fileExecutor(files.size());
+        List<java.util.concurrent.Future<EarningsDataset>> pending = new ArrayList<>();
+        long[] nanos = new long[files.size()];
+        boolean[] fromSnapshot = new boolean[files.size()];
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                final int index = i;
+                FileProgress fileProgress = new FileProgress(shared);
+                pending.add(executor.submit(() -> {
+                    long fileStart = System.nanoTime();
+                    EarningsDataset part = loadCached(files.get(index), fileProgress, snapshotWriter, workers,
+                            fromSnapshot, index);
+                    nanos[index] = System.nanoTime() - fileStart;
+                    return part;
+                }));
+            }
+            List<EarningsDataset> parts = new ArrayList<>();
+            List<FileStats> stats = new ArrayList<>();
+            Exception firstError = null;
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    EarningsDataset part = pending.get(i).get();
+                    parts.add(part);
+                    stats.add(new FileStats(files.get(i), part.rowCount, part.rejectedRows, nanos[i], fromSnapshot[i], null));
+                } catch (java.util.concurrent.ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof java.util.concurrent.CancellationException) {
+                        throw (java.util.concurrent.CancellationException) cause;
+                    }
+                    if (cause instanceof Error) throw (Error) cause;
+                    Exception error = (Exception) cause;
+                    if (firstError == null) firstError = error;
+                    stats.add(new FileStats(files.get(i), 0, 0, 0, false, error));
+                }
+            }
+            if (parts.isEmpty()) {
+                if (firstError instanceof IOException) throw (IOException) firstError;
+                throw new IOException(firstError.getMessage(), firstError);
+            }
+            EarningsDataset merged = parts.size() == 1 ? parts.get(0)
+                    : EarningsDataset.concat(parts, java.util.concurrent.ForkJoinPool.commonPool());
+            return new LoadResult(merged, Collections.unmodifiableList(stats), System.nanoTime() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new java.util.concurrent.CancellationException();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Streams every file into one EarningsSketch without keeping any rows. Records are
+     * parsed into chunks of SKETCH_CHUNK_ROWS, filtered, folded into the sketch and
+     * dropped, so memory depends on the chunk size and counter count, not the input.
+     * Snapshots are neither read nor written.
+     */
+    static LoadResult loadApproximate(List<File> files, RowFilter filter, int counters,
+                                      Progress progress) throws IOException {
+        long start = System.nanoTime();
+        EarningsSketch sketch = new EarningsSketch(counters);
+        List<FileStats> stats = new ArrayList<>();
+        long rowsBefore = 0;
+        long bytesBefore = 0;
+        for (File file : files) {
+            long fileStart = System.nanoTime();
+            long rows = 0;
+            long rejected = 0;
+            try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(file), EarningsDataset.COLUMNS)) {
+                csv.nextRecord(); // skip header
+                EarningsDataset.Builder chunk = new EarningsDataset.Builder();
+                long records = 0;
+                while (csv.nextRecord()) {
+                    if (++records % PROGRESS_INTERVAL == 0) {
+                        if (progress.isCancelled()) throw new java.util.concurrent.CancellationException();
+                        progress.update(rowsBefore + rows + chunk.rowCount(), bytesBefore + csv.bytesConsumed());
+                    }
+                    if (!csv.isBlank()) chunk.append(csv);
+                    if (chunk.rowCount() == SKETCH_CHUNK_ROWS) {
+                        EarningsDataset part = chunk.build(0);
+                        rows += part.rowCount;
+                        rejected += part.rejectedRows;
+                        sketch.add(filter == null ? part : filter.select(part));
+                        chunk = new EarningsDataset.Builder();
+                    }
+                }
+                EarningsDataset part = chunk.build(0);
+                rows += part.rowCount;
+                rejected += part.rejectedRows;
+                sketch.add(filter == null ? part : filter.select(part));
+                bytesBefore += csv.bytesConsumed();
+            }
+            sketch.addScanned(rows, rejected);
+            rowsBefore += rows;
+            stats.add(new FileStats(file, (int) Math.min(rows, Integer.MAX_VALUE), rejected,
+                    System.nanoTime() - fileStart, false, null));
+        }
+        progress.update(rowsBefore, bytesBefore);
+        return new LoadResult(null, sketch, Collections.unmodifiableList(stats), System.nanoTime() - start);
+    }
+
+    // Parsing is CPU-bound, so threads only need to be cheap, not many: virtual threads when
+    // the runtime has them (Java 21+, looked up reflectively since the build targets 17),
+    // otherwise a pool with one platform thread per core.
+    private static java.util.concurrent.ExecutorService fileExecutor(int files) {
+        try {
+            return (java.util.concurrent.ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.min(files, Runtime.getRuntime().availableProcessors());
+            return java.util.concurrent.Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "file-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Like load, but returns the dataset from a valid snapshot when there is one. After a
+     * full parse a fresh snapshot is written on snapshotWriter; a failed write only costs
+     * the next open its speed-up.
+     */
+    static EarningsDataset loadCached(File file, Progress progress,
+                                      java.util.concurrent.Executor snapshotWriter) throws IOException {
+        return loadCached(file, progress, snapshotWriter, Runtime.getRuntime().availableProcessors(), null, 0);
+    }
+
+    // fromSnapshot[index], when given, records whether the snapshot was used.
+    private static EarningsDataset loadCached(File file, Progress progress, java.util.concurrent.Executor snapshotWriter,
+                                              int workers, boolean[] fromSnapshot, int index) throws IOException {
+        long start = System.nanoTime();
+        Perf.LoadEvent event = new Perf.LoadEvent();
+        event.begin();
+        if (snapshotWriter == null) {
+            EarningsDataset parsed = load(file, progress, workers);
+            Perf.loadFinished(event, file, parsed, start, false);
+            return parsed;
+        }
+        EarningsDataset cached = EarningsSnapshot.load(file);
+        if (cached != null) {
+            progress.update(cached.rowCount, cached.bytes);
+            Perf.loadFinished(event, file, cached, start, true);
+            if (fromSnapshot != null) fromSnapshot[index] = true;
+            return cached;
+        }
+        EarningsSnapshot.Key key = EarningsSnapshot.Key.of(file);
+        EarningsDataset parsed = load(file, progress, workers);
+        Perf.loadFinished(event, file, parsed, start, false);
+        snapshotWriter.execute(() -> {
+            try {
+                EarningsSnapshot.save(key, parsed);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not write snapshot for " + file + ": " + e);
+            }
+        });
+        return parsed;
+    }
+
+    /** Reads the whole file. Throws CancellationException if progress reports cancellation. */
+    static EarningsDataset load(File file, Progress progress) throws IOException {
+        return load(file, progress, Runtime.getRuntime().availableProcessors());
+    }
+
+    static EarningsDataset load(File file, Progress progress, int workers) throws IOException {
+        if (workers > 1 && file.length() >= PARALLEL_MIN_BYTES) {
+            EarningsDataset result = loadParallel(file, progress, workers);
+            if (result != null) return result;
+            // A quoted field runs past the 2 GB a single mapped chunk can hold.
+        }
+        return loadSequential(file, progress);
+    }
+
+    static EarningsDataset loadSequential(File file, Progress progress) throws IOException {
+        try (CsvTokenizer csv = new CsvTokenizer(new FileInputStream(file), EarningsDataset.COLUMNS)) {
+            csv.nextRecord(); // skip header
+            EarningsDataset.Builder builder = new EarningsDataset.Builder();
+            readAll(csv, builder, progress, null);
+            progress.update(builder.rowCount(), csv.bytesConsumed());
+            return builder.build(csv.bytesConsumed());
+        }
+    }
+
+    /**
+     * Parses the chunks in parallel. Cuts are placed after line breaks without knowing
+     * the quote state, so a chunk may end inside a quoted field. Then the chunks from
+     * that one on are scanned for their real record boundaries, again in parallel, and
+     * only the chunks whose range changed are parsed again. Returns null when a quoted
+     * field joins chunks into one too large to map.
+     */
+    static EarningsDataset loadParallel(File file, Progress progress, int workers) throws IOException {
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                file.toPath(), java.nio.file.StandardOpenOption.READ)) {
+            long[] bounds = chunkBoundaries(channel, workers);
+            ParallelProgress shared = new ParallelProgress(progress);
+            java.util.concurrent.ForkJoinPool pool = new java.util.concurrent.ForkJoinPool(workers);
+            try {
+                List<ChunkTask> tasks = new ArrayList<>();
+                for (int i = 0; i + 1 < bounds.length; i++) {
+                    ChunkTask task = new ChunkTask(channel, bounds[i], bounds[i + 1], i == 0, i + 2 == bounds.length, shared);
+                    tasks.add(task);
+                    pool.execute(task);
+                }
+                for (ChunkTask task : tasks) task.join();
+                // Every chunk before the first one left inside a quote started on a record boundary.
+                int bad = 0;
+                while (bad < tasks.size() && !tasks.get(bad).endedInQuote) bad++;
+                if (bad < tasks.size()) {
+                    long[] cuts = recordBoundaries(channel, bounds, bad, pool);
+                    for (int j = 0; j + 1 < cuts.length; j++) {
+                        if (cuts[j + 1] - cuts[j] > Integer.MAX_VALUE) return null;
+                    }
+                    List<ChunkTask> pieces = new ArrayList<>(tasks.subList(0, bad));
+                    int i = bad;
+                    for (int j = 0; j + 1 < cuts.length; j++) {
+                        while (bounds[i] < cuts[j]) i++;
+                        if (bounds[i] == cuts[j] && i + 1 < bounds.length && bounds[i + 1] == cuts[j + 1]
+                                && !tasks.get(i).endedInQuote) {
+                            pieces.add(tasks.get(i)); // started on a boundary and parsed whole records
+                            continue;
+                        }
+                        ChunkTask task = new ChunkTask(channel, cuts[j], cuts[j + 1], cuts[j] == 0,
+                                j + 2 == cuts.length, shared);
+                        pool.execute(task);
+                        pieces.add(task);
+                    }
+                    tasks = pieces;
+                }
+                List<EarningsDataset> parts = new ArrayList<>();
+                for (ChunkTask task : tasks) {
+                    parts.add(task.join());
+                }
+                EarningsDataset dataset = EarningsDataset.concat(parts, pool);
+                progress.update(dataset.rowCount, dataset.bytes);
+                return dataset;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * The record boundaries from bounds[from] to the end of the file; bounds[from] must be
+     * one. A cut that landed inside a quoted field moves to the end of that record, or is
+     * dropped when the field runs past the next cut. The quote state at a cut is only known
+     * once the chunks before it are scanned, so each chunk is scanned in parallel from both
+     * states it can start in, and the results are chained afterwards.
+     */
+    private static long[] recordBoundaries(java.nio.channels.FileChannel channel, long[] bounds, int from,
+                                           java.util.concurrent.ForkJoinPool pool) {
+        List<java.util.concurrent.ForkJoinTask<long[]>> scans = new ArrayList<>();
+        for (int i = from; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long end = bounds[i + 1];
+            scans.add(pool.submit(() -> scanChunk(channel, start, end)));
+        }
+        List<Long> cuts = new ArrayList<>();
+        boolean quoted = false;
+        for (int i = 0; i < scans.size(); i++) {
+            long[] scan = scans.get(i).join();
+            if (!quoted) {
+                cuts.add(bounds[from + i]);
+            } else if (scan[1] >= 0 && scan[1] < bounds[from + i + 1]) {
+                cuts.add(scan[1]);
+            }
+            quoted = (quoted ? scan[2] : scan[0]) == 0;
+        }
+        cuts.add(bounds[bounds.length - 1]);
+        long[] result = new long[cuts.size()];
+        for (int i = 0; i < result.length; i++) result[i] = cuts.get(i);
+        return result;
+    }
+
+    // {ends on a record boundary when starting on one (1 or 0), first record boundary when
+    // starting inside a quoted field (or -1), ends on a record boundary when starting inside one}
+    private static long[] scanChunk(java.nio.channels.FileChannel channel, long start, long end) {
+        try {
+            java.nio.MappedByteBuffer bytes = channel.map(
+                    java.nio.channels.FileChannel.MapMode.READ_ONLY, start, end - start);
+            int length = (int) (end - start);
+            CsvRecordScanner outside = new CsvRecordScanner(false);
+            outside.scan(bytes, 0, length);
+            CsvRecordScanner inside = new CsvRecordScanner(true);
+            int first = inside.next(bytes, 0, length);
+            if (first >= 0) inside.scan(bytes, first, length);
+            return new long[]{outside.atRecordStart() ? 1 : 0, first < 0 ? -1 : start + first,
+                    inside.atRecordStart() ? 1 : 0};
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Splits the file into roughly equal chunks, moving each cut just past the next newline.
+    private static long[] chunkBoundaries(java.nio.channels.FileChannel channel, int workers) throws IOException {
+        long size = channel.size();
+        long chunk = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, size / (workers * 4L)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        java.nio.ByteBuffer probe = java.nio.ByteBuffer.allocate(4096);
+        long next = chunk;
+        while (next < size) {
+            long cut = -1;
+            long position = next;
+            while (cut < 0 && position < size) {
+                probe.clear();
+                int n = channel.read(probe, position);
+                if (n <= 0) break;
+                for (int i = 0; i < n; i++) {
+                    if (probe.get(i) == '\n') {
+                        cut = position + i + 1;
+                        break;
+                    }
+                }
+                position += n;
+            }
+            if (cut < 0 || cut >= size) break;
+            bounds.add(cut);
+            next = cut + chunk;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) result[i] = bounds.get(i);
+        return result;
+    }
+
+    private static void readAll(CsvTokenizer csv, EarningsDataset.Builder builder,
+                                Progress progress, ParallelProgress shared) throws IOException {
+        long records = 0;
+        long reportedRows = 0;
+        long reportedBytes = 0;
+        while (csv.nextRecord()) {
+            if (++records % PROGRESS_INTERVAL == 0) {
+                if (progress.isCancelled()) throw new java.util.concurrent.CancellationException();
+                if (shared == null) {
+                    progress.update(builder.rowCount(), csv.bytesConsumed());
+                } else {
+                    shared.add(builder.rowCount() - reportedRows, csv.bytesConsumed() - reportedBytes);
+                    reportedRows = builder.rowCount();
+                    reportedBytes = csv.bytesConsumed();
+                }
+            }
+            if (!csv.isBlank()) builder.append(csv);
+        }
+        if (shared != null) shared.add(builder.rowCount() - reportedRows, csv.bytesConsumed() - reportedBytes);
+    }
+
+    private static class ParallelProgress {
+        private final Progress progress;
+        private final java.util.concurrent.atomic.AtomicLong rows = new java.util.concurrent.atomic.AtomicLong();
+        private final java.util.concurrent.atomic.AtomicLong bytes = new java.util.concurrent.atomic.AtomicLong();
+
+        ParallelProgress(Progress progress) {
+            this.progress = progress;
+        }
+
+        void add(long rowDelta, long byteDelta) {
+            progress.update(rows.addAndGet(rowDelta), bytes.addAndGet(byteDelta));
+        }
+    }
+
+    // Turns one file's running totals into deltas on the multi-file total.
+    private static class FileProgress implements Progress {
+        private final ParallelProgress shared;
+        private long rows;
+        private long bytes;
+
+        FileProgress(ParallelProgress shared) {
+            this.shared = shared;
+        }
+
+        @Override
+        public synchronized void update(long rows, long bytes) {
+            shared.add(rows - this.rows, bytes - this.bytes);
+            this.rows = rows;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return shared.progress.isCancelled();
+        }
+    }
+
+    // Parses one byte range of the file into a partial dataset.
+    private static class ChunkTask extends java.util.concurrent.RecursiveTask<EarningsDataset> {
+        private final java.nio.channels.FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean first;
+        private final boolean last;
+        private final ParallelProgress shared;
+        private boolean endedInQuote;
+
+        ChunkTask(java.nio.channels.FileChannel channel, long start, long end, boolean first, boolean last,
+                  ParallelProgress shared) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+            this.last = last;
+            this.shared = shared;
+        }
+
+        @Override
+        protected EarningsDataset compute() {
+            try {
+                java.nio.MappedByteBuffer mapped = channel.map(
+                        java.nio.channels.FileChannel.MapMode.READ_ONLY, start, end - start);
+                CsvTokenizer csv = new CsvTokenizer(mapped, EarningsDataset.COLUMNS);
+                if (first) csv.nextRecord(); // skip header
+                EarningsDataset.Builder builder = new EarningsDataset.Builder();
+                readAll(csv, builder, shared.progress, shared);
+                // Only the end of the file may legitimately be left inside a quote.
+                endedInQuote = csv.endedInQuote() && !last;
+                return builder.build(csv.bytesConsumed());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
+
+/**
+ * EarningsSnapshot caches a parsed EarningsDataset as a flat binary file so reopening
+ * the same CSV maps the columns back instead of re-tokenizing the text. A snapshot is
+ * keyed by the source's canonical path, size, modification time and a hash of sampled
+ * content; any mismatch makes it stale, and it is replaced after the next full parse.
+ */
+class EarningsSnapshot {
+    private static final long MAGIC = 0x45454153_4E415031L; // "EEASNAP1"
+    private static final int VERSION = 1;
+    // Content hash covers the first and last blocks plus evenly spaced blocks in between.
+    private static final int SAMPLE_BYTES = 64 * 1024;
+    private static final int SAMPLES = 16;
+    // Mapped windows stay below the 2 GB MappedByteBuffer limit.
+    private static final long MAP_WINDOW = 1L << 30;
+
+    /** Identifies the exact source file contents a snapshot was built from. */
+    static final class Key {
+        final String path;
+        final long size;
+        final long modified;
+        final long contentHash;
+
+        private Key(String path, long size, long modified, long contentHash) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+            this.contentHash = contentHash;
+        }
+
+        static Key of(File source) throws IOException {
+            File file = source.getCanonicalFile();
+            long size = file.length();
+            long modified = file.lastModified();
+            java.util.zip.CRC32C crc = new java.util.zip.CRC32C();
+            try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                    file.toPath(), java.nio.file.StandardOpenOption.READ)) {
+                java.nio.ByteBuffer block = java.nio.ByteBuffer.allocate(SAMPLE_BYTES);
+                long last = Math.max(0, size - SAMPLE_BYTES);
+                for (int i = 0; i < SAMPLES; i++) {
+                    block.clear();
+                    long position = last * i / (SAMPLES - 1);
+                    while (block.hasRemaining() && channel.read(block, position + block.position()) > 0) { }
+                    block.flip();
+                    crc.update(block);
+                }
+            }
+            return new Key(file.getPath(), size, modified, crc.getValue());
+        }
+
+        boolean sameAs(Key other) {
+            return path.equals(other.path) && size == other.size
+                    && modified == other.modified && contentHash == other.contentHash;
+        }
+    }
+
+    /** Snapshots live in the user's cache directory, one file per source path. */
+    static File snapshotFile(Key key) {
+        File dir = new File(System.getProperty("user.home"), ".esports-earnings-analyzer" + File.separator + "snapshots");
+        try {
+            byte[] digest = java.security.MessageDigest.getInstance("SHA-256")
+                    .digest(key.path.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) name.append(String.format("%02x", digest[i]));
+            return new File(dir, name.append(".snap").toString());
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // SHA-256 is required of every JRE
+        }
+    }
+
+    /** Returns the cached dataset for source, or null when there is no valid snapshot. */
+    static EarningsDataset load(File source) {
+        File file = null;
+        try {
+            Key key = Key.of(source);
+            file = snapshotFile(key);
+            if (!file.isFile()) return null;
+            try (Input in = new Input(file)) {
+                if (in.getLong() != MAGIC || in.getInt() != VERSION || in.getLong() != in.length()) {
+                    throw new IOException("Not a snapshot");
+                }
+                Key stored = new Key(new String(in.getBytes(in.getInt()), java.nio.charset.StandardCharsets.UTF_8),
+                        in.getLong(), in.getLong(), in.getLong());
+                if (!stored.sameAs(key)) throw new IOException("Stale snapshot");
+                EarningsDataset dataset = EarningsDataset.readFrom(in);
+                if (in.getLong() != MAGIC) throw new IOException("Truncated snapshot");
+                return dataset;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Stale or unreadable: drop it so the next full parse writes a fresh one.
+            if (file != null) file.delete();
+            return null;
+        }
+    }
+
+    /** Writes to a temporary file and renames it, so readers never see a partial snapshot. */
+    static void save(Key key, EarningsDataset dataset) throws IOException {
+        File file = snapshotFile(key);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File temp = File.createTempFile("snapshot", ".tmp", dir);
+        try {
+            try (Output out = new Output(temp)) {
+                out.putLong(MAGIC);
+                out.putInt(VERSION);
+                out.putLong(0); // total length, patched below
+                byte[] path = key.path.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                out.putInt(path.length);
+                out.putBytes(path);
+                out.putLong(key.size);
+                out.putLong(key.modified);
+                out.putLong(key.contentHash);
+                dataset.writeTo(out);
+                out.putLong(MAGIC);
+                out.patchLong(12, out.length());
+            }
+            java.nio.file.Files.move(temp.toPath(), file.toPath(),
+                    java.nio.file.StandardCopyOption.REPLACE_EXISTING, java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temp.delete();
+        }
+    }
+
+    /** Little-endian writer that stages values in one buffer and drains it to the channel. */
+    static final class Output implements Closeable {
+        private final java.nio.channels.FileChannel channel;
+        private final java.nio.ByteBuffer buffer =
+                java.nio.ByteBuffer.allocateDirect(1 << 20).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(File file) throws IOException {
+            channel = java.nio.channels.FileChannel.open(file.toPath(), java.nio.file.StandardOpenOption.WRITE,
+                    java.nio.file.StandardOpenOption.TRUNCATE_EXISTING, java.nio.file.StandardOpenOption.CREATE);
+        }
+
+        long length() {
+            return written + buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            room(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            room(8);
+            buffer.putLong(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (int off = 0; off < values.length; ) {
+                room(1);
+                int n = Math.min(values.length - off, buffer.remaining());
+                buffer.put(values, off, n);
+                off += n;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int off = 0; off < values.length; ) {
+                room(4);
+                int n = Math.min(values.length - off, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, off, n);
+                buffer.position(buffer.position() + n * 4);
+                off += n;
+            }
+        }
+
+        void putLongs(long[] values) throws IOException {
+            for (int off = 0; off < values.length; ) {
+                room(8);
+                int n = Math.min(values.length - off, buffer.remaining() / 8);
+                buffer.asLongBuffer().put(values, off, n);
+                buffer.position(buffer.position() + n * 8);
+                off += n;
+            }
+        }
+
+        void putShorts(short[] values) throws IOException {
+            for (int off = 0; off < values.length; ) {
+                room(2);
+                int n = Math.min(values.length - off, buffer.remaining() / 2);
+                buffer.asShortBuffer().put(values, off, n);
+                buffer.position(buffer.position() + n * 2);
+                off += n;
+            }
+        }
+
+        /** Overwrites a long already written at position; flushes first. */
+        void patchLong(long position, long value) throws IOException {
+            drain();
+            java.nio.ByteBuffer patch = java.nio.ByteBuffer.allocate(8).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            patch.putLong(value).flip();
+            while (patch.hasRemaining()) channel.write(patch, position + patch.position());
+        }
+
+        private void room(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) written += channel.write(buffer);
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Little-endian reader over the memory-mapped file. Columns are bulk-copied out of
+     * mapped windows, remapping whenever a read crosses the end of the current one.
+     */
+    static final class Input implements Closeable {
+        private final java.nio.channels.FileChannel channel;
+        private final long length;
+        private java.nio.MappedByteBuffer window;
+        private long windowStart;
+        private long position;
+
+        Input(File file) throws IOException {
+            channel = java.nio.channels.FileChannel.open(file.toPath(), java.nio.file.StandardOpenOption.READ);
+            length = channel.size();
+        }
+
+        long length() {
+            return length;
+        }
+
+        int getInt() throws IOException {
+            return view(4).getInt();
+        }
+
+        long getLong() throws IOException {
+            return view(8).getLong();
+        }
+
+        byte[] getBytes(int count) throws IOException {
+            byte[] values = new byte[checkCount(count, 1)];
+            for (int off = 0; off < count; ) {
+                java.nio.ByteBuffer source = view(1);
+                int n = Math.min(count - off, source.remaining());
+                source.get(values, off, n);
+                position += n - 1;
+                off += n;
+            }
+            return values;
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[checkCount(count, 4)];
+            for (int off = 0; off < count; ) {
+                java.nio.ByteBuffer source = view(4);
+                int n = Math.min(count - off, source.remaining() / 4);
+                source.asIntBuffer().get(values, off, n);
+                position += n * 4L - 4;
+                off += n;
+            }
+            return values;
+        }
+
+        long[] getLongs(int count) throws IOException {
+            long[] values = new long[checkCount(count, 8)];
+            for (int off = 0; off < count; ) {
+                java.nio.ByteBuffer source = view(8);
+                int n = Math.min(count - off, source.remaining() / 8);
+                source.asLongBuffer().get(values, off, n);
+                position += n * 8L - 8;
+                off += n;
+            }
+            return values;
+        }
+
+        short[] getShorts(int count) throws IOException {
+            short[] values = new short[checkCount(count, 2)];
+            for (int off = 0; off < count; ) {
+                java.nio.ByteBuffer source = view(2);
+                int n = Math.min(count - off, source.remaining() / 2);
+                source.asShortBuffer().get(values, off, n);
+                position += n * 2L - 2;
+                off += n;
+            }
+            return values;
+        }
+
+        // Guards allocations against corrupt counts.
+        private int checkCount(int count, int width) throws IOException {
+            if (count < 0 || position + (long) count * width > length) throw new IOException("Corrupt snapshot");
+            return count;
+        }
+
+        // Returns a little-endian view starting at position with at least bytes remaining,
+        // and advances position by bytes; callers consuming more advance it themselves.
+        private java.nio.ByteBuffer view(int bytes) throws IOException {
+            if (position + bytes > length) throw new IOException("Truncated snapshot");
+            if (window == null || position < windowStart || position + bytes > windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(java.nio.channels.FileChannel.MapMode.READ_ONLY,
+                        windowStart, Math.min(MAP_WINDOW, length - windowStart));
+            }
+            java.nio.ByteBuffer view = window.duplicate().order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            view.position((int) (position - windowStart));
+            position += bytes;
+            return view;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
+
+/**
+ * TailFollower watches a CSV that another process keeps appending to. Only the bytes
+ * after the last complete record are parsed, and each batch is appended to the dataset
+ * on the follower thread. Bursts of writes are coalesced: a batch is read at most once
+ * per MIN_INTERVAL_MILLIS and takes in everything written meanwhile. If the file is
+ * truncated or replaced the byte offset no longer applies, so the listener is told to
+ * reload instead.
+ */
+class TailFollower implements Closeable {
+    /** Called on the follower thread. */
+    interface Listener {
+        void appended(TailFollower source, EarningsDataset updated, int newRows, long rejectedRows);
+        void reset(TailFollower source);
+        void failed(TailFollower source, IOException error);
+    }
+
+    private static final long MIN_INTERVAL_MILLIS = 1000;
+    // Re-checks the size this often even without events; some file systems never deliver them.
+    private static final long POLL_MILLIS = 2000;
+    private static final int MAX_BATCH_BYTES = 64 << 20;
+
+    private final java.nio.file.Path path;
+    private final Listener listener;
+    private final Thread thread;
+    private final Object fileKey;
+    private volatile boolean closed;
+    // Owned by the follower thread
+    private EarningsDataset dataset;
+    private long offset;
+    // Set when a half-written last record was dropped, so the trimmed dataset is published.
+    private boolean trimmed;
+
+    TailFollower(File file, EarningsDataset dataset, Listener listener) throws IOException {
+        this.path = file.toPath().toAbsolutePath();
+        this.dataset = dataset;
+        this.offset = dataset.bytes;
+        this.listener = listener;
+        this.fileKey = java.nio.file.Files.readAttributes(path,
+                java.nio.file.attribute.BasicFileAttributes.class).fileKey();
+        thread = new Thread(this::run, "tail-follow " + file.getName());
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * The load also parses a last record that has no line break yet, which may be a row
+     * the writer is still in the middle of. Following starts at the end of the last
+     * complete record instead, and whatever the partial record added is taken back out.
+     * Quoted fields may hold line breaks, so the boundary is found scanning forward
+     * from the start of the file; this runs on the follower thread.
+     */
+    private void dropPartialRecord() throws IOException {
+        long end = dataset.bytes;
+        if (end == 0) return;
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                path, java.nio.file.StandardOpenOption.READ)) {
+            java.nio.ByteBuffer block = java.nio.ByteBuffer.allocate(1 << 20);
+            CsvRecordScanner scanner = new CsvRecordScanner();
+            long lineStart = -1;
+            for (long blockStart = 0; blockStart < end; blockStart += block.capacity()) {
+                block.clear().limit((int) Math.min(block.capacity(), end - blockStart));
+                while (block.hasRemaining() && channel.read(block, blockStart + block.position()) > 0) { }
+                int recordEnd = scanner.scan(block, 0, block.position());
+                if (recordEnd >= 0) lineStart = blockStart + recordEnd;
+            }
+            if (lineStart < 0) return; // the header is the only line
+            if (lineStart == end) return; // the last record is complete
+            java.nio.ByteBuffer tail = java.nio.ByteBuffer.allocate((int) (end - lineStart));
+            while (tail.hasRemaining() && channel.read(tail, lineStart + tail.position()) > 0) { }
+            tail.flip();
+            EarningsDataset.Builder partial = new EarningsDataset.Builder();
+            try (CsvTokenizer csv = new CsvTokenizer(tail, EarningsDataset.COLUMNS)) {
+                while (csv.nextRecord()) {
+                    if (!csv.isBlank()) partial.append(csv);
+                }
+            }
+            EarningsDataset dropped = partial.build(end - lineStart);
+            dataset = dataset.head(dataset.rowCount - dropped.rowCount,
+                    dataset.rejectedRows - dropped.rejectedRows, lineStart);
+            dataset.buildAggregates();
+            offset = lineStart;
+            trimmed = true;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+
+    private void run() {
+        try (java.nio.file.WatchService watcher = path.getFileSystem().newWatchService()) {
+            path.getParent().register(watcher, java.nio.file.StandardWatchEventKinds.ENTRY_CREATE,
+                    java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY);
+            long lastBatch = 0;
+            dropPartialRecord();
+            if (trimmed) readAppended();
+            while (!closed) {
+                java.nio.file.WatchKey key = watcher.poll(POLL_MILLIS, java.util.concurrent.TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    boolean ours = false;
+                    for (java.nio.file.WatchEvent<?> event : key.pollEvents()) {
+                        ours |= event.kind() == java.nio.file.StandardWatchEventKinds.OVERFLOW
+                                || path.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (!ours) continue;
+                }
+                long wait = lastBatch + MIN_INTERVAL_MILLIS - System.currentTimeMillis();
+                if (wait > 0) Thread.sleep(wait);
+                if (closed) break;
+                readAppended();
+                lastBatch = System.currentTimeMillis();
+            }
+        } catch (InterruptedException | java.nio.file.ClosedWatchServiceException e) {
+            // closed
+        } catch (IOException e) {
+            if (!closed) listener.failed(this, e);
+        }
+    }
+
+    private void readAppended() throws IOException {
+        java.nio.file.attribute.BasicFileAttributes attributes;
+        try {
+            attributes = java.nio.file.Files.readAttributes(path, java.nio.file.attribute.BasicFileAttributes.class);
+        } catch (java.nio.file.NoSuchFileException e) {
+            return; // mid-rotation; the new file will raise its own event
+        }
+        if (attributes.size() < offset || (fileKey != null && !fileKey.equals(attributes.fileKey()))) {
+            closed = true;
+            listener.reset(this);
+            return;
+        }
+        if (attributes.size() == offset && !trimmed) return;
+
+        EarningsDataset.Builder builder = new EarningsDataset.Builder();
+        long start = offset;
+        try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(
+                path, java.nio.file.StandardOpenOption.READ)) {
+            long size = channel.size();
+            while (offset < size && !closed) {
+                java.nio.ByteBuffer bytes = java.nio.ByteBuffer.allocate((int) Math.min(size - offset, MAX_BATCH_BYTES));
+                while (bytes.hasRemaining() && channel.read(bytes, offset + bytes.position()) > 0) { }
+                bytes.flip();
+                // The buffer starts on a record boundary, so the scan can start there.
+                int end = new CsvRecordScanner().scan(bytes, 0, bytes.limit());
+                if (end < 0) break; // the last record is still being written
+                bytes.limit(end);
+                try (CsvTokenizer csv = new CsvTokenizer(bytes, EarningsDataset.COLUMNS)) {
+                    while (csv.nextRecord()) {
+                        if (!csv.isBlank()) builder.append(csv);
+                    }
+                }
+                offset += end;
+            }
+        }
+        if ((offset == start && !trimmed) || closed) return;
+        trimmed = false;
+        EarningsDataset delta = builder.build(offset - start);
+        dataset = dataset.append(delta);
+        dataset.buildAggregates();
+        listener.appended(this, dataset, delta.rowCount, delta.rejectedRows);
+    }
+}
+
+/**
+ * EarningsDataset is the columnar in-memory form of one CSV export. Every column is
+ * kept: numbers as primitive arrays, money as fixed-point cents, and the text
+ * columns (GameName, Genre, Top_Country) as int codes into a StringDictionary.
+ * A row costs about 42 bytes regardless of how long its strings are.
+ */
+class EarningsDataset {
+    static final int[] COLUMNS = {
+        EsportEarningsAnalyzer.COL_ID_NO, EsportEarningsAnalyzer.COL_TOTAL_MONEY,
+        EsportEarningsAnalyzer.COL_GAME_NAME, EsportEarningsAnalyzer.COL_GENRE,
+        EsportEarningsAnalyzer.COL_PLAYER_NO, EsportEarningsAnalyzer.COL_TOURNAMENT_NO,
+        EsportEarningsAnalyzer.COL_TOP_COUNTRY, EsportEarningsAnalyzer.COL_TOP_COUNTRY_EARNINGS,
+        EsportEarningsAnalyzer.COL_RELEASE_YEAR
+    };
+
+    final int rowCount;
+    final long rejectedRows;
+    final long bytes;
+
+    final int[] idNo;
+    final long[] totalMoneyCents;
+    final int[] gameName;
+    final int[] genre;
+    final int[] playerNo;
+    final int[] tournamentNo;
+    final int[] topCountry;
+    final long[] topCountryEarningsCents;
+    final short[] releaseYear; // 0 when missing
+
+    final StringDictionary gameNames;
+    final StringDictionary genres;
+    final StringDictionary countries;
+
+    private EarningsDataset(int rowCount, long rejectedRows, long bytes, int[] idNo, long[] totalMoneyCents,
+                            int[] gameName, int[] genre, int[] playerNo, int[] tournamentNo, int[] topCountry,
+                            long[] topCountryEarningsCents, short[] releaseYear,
+                            StringDictionary gameNames, StringDictionary genres, StringDictionary countries) {
+        this.rowCount = rowCount;
+        this.rejectedRows = rejectedRows;
+        this.bytes = bytes;
+        this.idNo = idNo;
+        this.totalMoneyCents = totalMoneyCents;
+        this.gameName = gameName;
+        this.genre = genre;
+        this.playerNo = playerNo;
+        this.tournamentNo = tournamentNo;
+        this.topCountry = topCountry;
+        this.topCountryEarningsCents = topCountryEarningsCents;
+        this.releaseYear = releaseYear;
+        this.gameNames = gameNames;
+        this.genres = genres;
+        this.countries = countries;
+    }
+
+    private EarningsDataset(Builder b, long bytes) {
+        this.rowCount = b.rowCount;
+        this.rejectedRows = b.rejectedRows;
+        this.bytes = bytes;
+        this.idNo = Arrays.copyOf(b.idNo, rowCount);
+        this.totalMoneyCents = Arrays.copyOf(b.totalMoneyCents, rowCount);
+        this.gameName = Arrays.copyOf(b.gameName, rowCount);
+        this.genre = Arrays.copyOf(b.genre, rowCount);
+        this.playerNo = Arrays.copyOf(b.playerNo, rowCount);
+        this.tournamentNo = Arrays.copyOf(b.tournamentNo, rowCount);
+        this.topCountry = Arrays.copyOf(b.topCountry, rowCount);
+        this.topCountryEarningsCents = Arrays.copyOf(b.topCountryEarningsCents, rowCount);
+        this.releaseYear = Arrays.copyOf(b.releaseYear, rowCount);
+        this.gameNames = b.gameNames;
+        this.genres = b.genres;
+        this.countries = b.countries;
+    }
+
+    private EarningsTable earningsByGame;
+    private EarningsCube cube;
+    private EarningsTimeline timeline;
+
+    /** Writes the dictionaries and columns in snapshot order; readFrom is the inverse. */
+    void writeTo(EarningsSnapshot.Output out) throws IOException {
+        out.putInt(rowCount);
+        out.putLong(rejectedRows);
+        out.putLong(bytes);
+        gameNames.writeTo(out);
+        genres.writeTo(out);
+        countries.writeTo(out);
+        out.putInts(idNo);
+        out.putLongs(totalMoneyCents);
+        out.putInts(gameName);
+        out.putInts(genre);
+        out.putInts(playerNo);
+        out.putInts(tournamentNo);
+        out.putInts(topCountry);
+        out.putLongs(topCountryEarningsCents);
+        out.putShorts(releaseYear);
+    }
+
+    static EarningsDataset readFrom(EarningsSnapshot.Input in) throws IOException {
+        int rows = in.getInt();
+        long rejected = in.getLong();
+        long sourceBytes = in.getLong();
+        StringDictionary games = StringDictionary.readFrom(in);
+        StringDictionary genreNames = StringDictionary.readFrom(in);
+        StringDictionary countryNames = StringDictionary.readFrom(in);
+        return new EarningsDataset(rows, rejected, sourceBytes, in.getInts(rows), in.getLongs(rows),
+                in.getInts(rows), in.getInts(rows), in.getInts(rows), in.getInts(rows), in.getInts(rows),
+                in.getLongs(rows), in.getShorts(rows), games, genreNames, countryNames);
+    }
+
+    /** Sums TotalMoney per GameName. Cents are summed exactly, so the result doesn't depend on row order. */
+    synchronized EarningsTable earningsByGame() {
+        if (earningsByGame == null) earningsByGame = sumByGame();
+        return earningsByGame;
+    }
+
+    /** Sums and counts over Genre, Top_Country and Releaseyear, built on first use. */
+    synchronized EarningsCube cube() {
+        if (cube == null) cube = new EarningsCube(this);
+        return cube;
+    }
+
+    /** Cumulative earnings by release year, for timeline playback; built on first use. */
+    synchronized EarningsTimeline timeline() {
+        if (timeline == null) timeline = new EarningsTimeline(this);
+        return timeline;
+    }
+
+    private EarningsTable sumByGame() {
+        long[] cents = new long[gameNames.size()];
+        for (int row = 0; row < rowCount; row++) {
+            cents[gameName[row]] += totalMoneyCents[row];
+        }
+        return tableFromCents(cents);
+    }
+
+    private EarningsTable tableFromCents(long[] cents) {
+        double[] values = new double[cents.length];
+        for (int i = 0; i < cents.length; i++) values[i] = cents[i] / 100.0;
+        return new EarningsTable(gameNames, values);
+    }
+
+    /**
+     * Builds the aggregations, the timeline and their rank indexes, plus the title search
+     * index, so switching the grouping or the timeline year later is only a lookup.
+     */
+    void buildAggregates() {
+        earningsByGame().searchIndex();
+        for (Set<EarningsCube.Dimension> dimensions : EarningsCube.groupings()) {
+            cube().groupBy(dimensions).earnings.rankIndex();
+        }
+        timeline();
+    }
+
+    /**
+     * This dataset followed by delta's rows. Existing dictionary codes keep their values,
+     * and aggregates that were already built are extended with delta's rows instead of
+     * being recomputed over the whole dataset.
+     */
+    EarningsDataset append(EarningsDataset delta) {
+        EarningsDataset merged = concat(Arrays.asList(this, delta), java.util.concurrent.ForkJoinPool.commonPool());
+        EarningsTable byGame;
+        EarningsCube builtCube;
+        boolean builtTimeline;
+        synchronized (this) {
+            byGame = earningsByGame;
+            builtCube = cube;
+            builtTimeline = timeline != null;
+        }
+        if (byGame != null) {
+            long[] cents = new long[merged.gameNames.size()];
+            // Table values are whole cents / 100, so rounding recovers the exact sums.
+            for (int i = 0; i < byGame.size(); i++) cents[i] = Math.round(byGame.valueAt(i) * 100);
+            for (int row = rowCount; row < merged.rowCount; row++) {
+                cents[merged.gameName[row]] += merged.totalMoneyCents[row];
+            }
+            merged.earningsByGame = merged.tableFromCents(cents);
+        }
+        if (builtCube != null) merged.cube = builtCube.plus(new EarningsCube(delta));
+        // New rows can land in any year, so the cumulative frames are rebuilt here, off the EDT.
+        if (builtTimeline) merged.timeline = new EarningsTimeline(merged);
+        return merged;
+    }
+
+    /**
+     * The rows whose bits are set, in their original order. Dictionaries are compacted to
+     * the values those rows use, so groups without a matching row don't appear at all.
+     */
+    EarningsDataset select(long[] rows) {
+        int count = 0;
+        for (long word : rows) count += Long.bitCount(word);
+        if (count == rowCount) return this; // keeps any aggregates already built
+        return select(rows, count, rejectedRows, bytes);
+    }
+
+    /** The first rows rows, as read from the first bytes bytes with rejectedRows rejected. */
+    EarningsDataset head(int rows, long rejectedRows, long bytes) {
+        long[] bits = new long[(rows + 63) >>> 6];
+        for (int row = 0; row < rows; row++) bits[row >>> 6] |= 1L << row;
+        return select(bits, rows, rejectedRows, bytes);
+    }
+
+    private EarningsDataset select(long[] rows, int count, long rejectedRows, long bytes) {
+        Builder selected = new Builder();
+        selected.ensureCapacity(count);
+        selected.rowCount = count;
+        selected.rejectedRows = rejectedRows;
+        int[] gameRemap = new int[gameNames.size()];
+        int[] genreRemap = new int[genres.size()];
+        int[] countryRemap = new int[countries.size()];
+        Arrays.fill(gameRemap, -1);
+        Arrays.fill(genreRemap, -1);
+        Arrays.fill(countryRemap, -1);
+        int target = 0;
+        for (int w = 0; w < rows.length; w++) {
+            long word = rows[w];
+            while (word != 0) {
+                int row = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                selected.idNo[target] = idNo[row];
+                selected.totalMoneyCents[target] = totalMoneyCents[row];
+                selected.playerNo[target] = playerNo[row];
+                selected.tournamentNo[target] = tournamentNo[row];
+                selected.topCountryEarningsCents[target] = topCountryEarningsCents[row];
+                selected.releaseYear[target] = releaseYear[row];
+                selected.gameName[target] = remap(gameRemap, gameName[row], selected.gameNames, gameNames);
+                selected.genre[target] = remap(genreRemap, genre[row], selected.genres, genres);
+                selected.topCountry[target] = remap(countryRemap, topCountry[row], selected.countries, countries);
+                target++;
+            }
+        }
+        return selected.build(bytes);
+    }
+
+    private static int remap(int[] remap, int code, StringDictionary target, StringDictionary source) {
+        int mapped = remap[code];
+        if (mapped < 0) {
+            mapped = target.addFrom(source, code);
+            remap[code] = mapped;
+        }
+        return mapped;
+    }
+
+    /**
+     * Concatenates partial datasets in order. Dictionaries are merged first so codes
+     * come out in first-seen order, exactly as a sequential load would assign them;
+     * the column copies then run in parallel on the pool.
+     */
+    static EarningsDataset concat(List<EarningsDataset> parts, java.util.concurrent.ForkJoinPool pool) {
+        Builder merged = new Builder();
+        int total = 0;
+        long bytes = 0;
+        int[] offsets = new int[parts.size()];
+        int[][] gameRemap = new int[parts.size()][];
+        int[][] genreRemap = new int[parts.size()][];
+        int[][] countryRemap = new int[parts.size()][];
+        for (int p = 0; p < parts.size(); p++) {
+            EarningsDataset part = parts.get(p);
+            offsets[p] = total;
+            total = Math.addExact(total, part.rowCount);
+            bytes += part.bytes;
+            merged.rejectedRows += part.rejectedRows;
+            gameRemap[p] = merged.gameNames.addAll(part.gameNames);
+            genreRemap[p] = merged.genres.addAll(part.genres);
+            countryRemap[p] = merged.countries.addAll(part.countries);
+        }
+        merged.ensureCapacity(total);
+        merged.rowCount = total;
+        List<java.util.concurrent.ForkJoinTask<?>> copies = new ArrayList<>();
+        for (int p = 0; p < parts.size(); p++) {
+            final int index = p;
+            copies.add(java.util.concurrent.ForkJoinTask.adapt(() -> merged.copyFrom(
+                    parts.get(index), offsets[index], gameRemap[index], genreRemap[index], countryRemap[index])));
+        }
+        pool.invoke(java.util.concurrent.ForkJoinTask.adapt(() -> java.util.concurrent.ForkJoinTask.invokeAll(copies)));
+        return merged.build(bytes);
+    }
+
+    /** Appends parsed records; not thread-safe. */
+    static class Builder {
+        private int rowCount;
+        private long rejectedRows;
+        private int[] idNo = new int[1024];
+        private long[] totalMoneyCents = new long[1024];
+        private int[] gameName = new int[1024];
+        private int[] genre = new int[1024];
+        private int[] playerNo = new int[1024];
+        private int[] tournamentNo = new int[1024];
+        private int[] topCountry = new int[1024];
+        private long[] topCountryEarningsCents = new long[1024];
+        private short[] releaseYear = new short[1024];
+        private final StringDictionary gameNames = new StringDictionary();
+        private final StringDictionary genres = new StringDictionary();
+        private final StringDictionary countries = new StringDictionary();
+
+        int rowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Adds the current record, or counts it as rejected when TotalMoney is missing or
+         * negative, GameName is empty, or IdNo, PlayerNo or TournamentNo doesn't fit the
+         * int columns. Earnings are never negative, and EarningsSketch relies on that to
+         * keep its counters summing to the exact total.
+         */
+        boolean append(CsvTokenizer csv) {
+            int gameCol = EsportEarningsAnalyzer.COL_GAME_NAME;
+            long cents = csv.cents(EsportEarningsAnalyzer.COL_TOTAL_MONEY);
+            long id = orZero(csv.longValue(EsportEarningsAnalyzer.COL_ID_NO));
+            long players = orZero(csv.longValue(EsportEarningsAnalyzer.COL_PLAYER_NO));
+            long tournaments = orZero(csv.longValue(EsportEarningsAnalyzer.COL_TOURNAMENT_NO));
+            if (csv.fieldCount() <= gameCol || cents == CsvTokenizer.NO_VALUE || cents < 0 || csv.length(gameCol) == 0
+                    || id != (int) id || players != (int) players || tournaments != (int) tournaments) {
+                rejectedRows++;
+                return false;
+            }
+            if (rowCount == totalMoneyCents.length) ensureCapacity(rowCount * 2);
+            int row = rowCount++;
+            idNo[row] = (int) id;
+            totalMoneyCents[row] = cents;
+            gameName[row] = gameNames.add(csv.bytes(gameCol), csv.length(gameCol));
+            genre[row] = code(genres, csv, EsportEarningsAnalyzer.COL_GENRE);
+            playerNo[row] = (int) players;
+            tournamentNo[row] = (int) tournaments;
+            topCountry[row] = code(countries, csv, EsportEarningsAnalyzer.COL_TOP_COUNTRY);
+            topCountryEarningsCents[row] = orZero(csv.cents(EsportEarningsAnalyzer.COL_TOP_COUNTRY_EARNINGS));
+            long year = csv.longValue(EsportEarningsAnalyzer.COL_RELEASE_YEAR);
+            releaseYear[row] = year > 0 && year <= Short.MAX_VALUE ? (short) year : 0;
+            return true;
+        }
+
+        EarningsDataset build(long bytes) {
+            return new EarningsDataset(this, bytes);
+        }
+
+        private static int code(StringDictionary dictionary, CsvTokenizer csv, int column) {
+            return dictionary.add(column < csv.fieldCount() ? csv.bytes(column) : null, csv.length(column));
+        }
+
+        private static long orZero(long value) {
+            return value == CsvTokenizer.NO_VALUE ? 0 : value;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= totalMoneyCents.length) return;
+            idNo = Arrays.copyOf(idNo, capacity);
+            totalMoneyCents = Arrays.copyOf(totalMoneyCents, capacity);
+            gameName = Arrays.copyOf(gameName, capacity);
+            genre = Arrays.copyOf(genre, capacity);
+            playerNo = Arrays.copyOf(playerNo, capacity);
+            tournamentNo = Arrays.copyOf(tournamentNo, capacity);
+            topCountry = Arrays.copyOf(topCountry, capacity);
+            topCountryEarningsCents = Arrays.copyOf(topCountryEarningsCents, capacity);
+            releaseYear = Arrays.copyOf(releaseYear, capacity);
+        }
+
+        private void copyFrom(EarningsDataset part, int offset, int[] gameRemap, int[] genreRemap, int[] countryRemap) {
+            int n = part.rowCount;
+            System.arraycopy(part.idNo, 0, idNo, offset, n);
+            System.arraycopy(part.totalMoneyCents, 0, totalMoneyCents, offset, n);
+            System.arraycopy(part.playerNo, 0, playerNo, offset, n);
+            System.arraycopy(part.tournamentNo, 0, tournamentNo, offset, n);
+            System.arraycopy(part.topCountryEarningsCents, 0, topCountryEarningsCents, offset, n);
+            System.arraycopy(part.releaseYear, 0, releaseYear, offset, n);
+            for (int i = 0; i < n; i++) {
+                gameName[offset + i] = gameRemap[part.gameName[i]];
+                genre[offset + i] = genreRemap[part.genre[i]];
+                topCountry[offset + i] = countryRemap[part.topCountry[i]];
+            }
+        }
+    }
+}
+
+/**
+ * EarningsCube pre-aggregates a dataset over Genre, Top_Country and Releaseyear.
+ * Rows are first reduced to one cell per distinct (genre, country, year), and every
+ * combination of those dimensions is rolled up from the cells when the cube is
+ * built, so switching the chart's grouping is a map lookup rather than a rescan.
+ */
+class EarningsCube {
+    enum Dimension {
+        GENRE("Genre"), TOP_COUNTRY("Top Country"), RELEASE_YEAR("Release Year");
+
+        final String label;
+
+        Dimension(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Sums and counts for each group of one dimension combination. */
+    static class Group {
+        final StringDictionary labels;
+        final String[][] parts; // parts[g][i] is group g's value for the i-th dimension, in enum order
+        final long[] moneyCents;
+        final long[] players;
+        final long[] tournaments;
+        final long[] rows;
+        final EarningsTable earnings;
+
+        Group(StringDictionary labels, String[][] parts, long[] moneyCents, long[] players, long[] tournaments, long[] rows) {
+            this.labels = labels;
+            this.parts = parts;
+            this.moneyCents = moneyCents;
+            this.players = players;
+            this.tournaments = tournaments;
+            this.rows = rows;
+            double[] values = new double[moneyCents.length];
+            for (int i = 0; i < values.length; i++) values[i] = moneyCents[i] / 100.0;
+            this.earnings = new EarningsTable(labels, values);
+        }
+
+        int size() {
+            return moneyCents.length;
+        }
+
+        Group plus(Group other) {
+            StringDictionary merged = new StringDictionary();
+            merged.addAll(labels);
+            int[] remap = merged.addAll(other.labels);
+            int n = merged.size();
+            String[][] mergedParts = Arrays.copyOf(parts, n);
+            long[] money = Arrays.copyOf(moneyCents, n);
+            long[] mergedPlayers = Arrays.copyOf(players, n);
+            long[] mergedTournaments = Arrays.copyOf(tournaments, n);
+            long[] mergedRows = Arrays.copyOf(rows, n);
+            for (int g = 0; g < other.size(); g++) {
+                int target = remap[g];
+                if (mergedParts[target] == null) mergedParts[target] = other.parts[g];
+                money[target] += other.moneyCents[g];
+                mergedPlayers[target] += other.players[g];
+                mergedTournaments[target] += other.tournaments[g];
+                mergedRows[target] += other.rows[g];
+            }
+            return new Group(merged, mergedParts, money, mergedPlayers, mergedTournaments, mergedRows);
+        }
+    }
+
+    private final Map<Set<Dimension>, Group> groups = new HashMap<>();
+
+    private EarningsCube(Map<Set<Dimension>, Group> groups) {
+        this.groups.putAll(groups);
+    }
+
+    /** This cube plus other's rows. Groups are matched by label, so the cubes may use different dictionaries. */
+    EarningsCube plus(EarningsCube other) {
+        Map<Set<Dimension>, Group> merged = new HashMap<>();
+        for (Map.Entry<Set<Dimension>, Group> entry : groups.entrySet()) {
+            merged.put(entry.getKey(), entry.getValue().plus(other.groupBy(entry.getKey())));
+        }
+        return new EarningsCube(merged);
+    }
+
+    EarningsCube(EarningsDataset dataset) {
+        // Reduce rows to cells keyed by (genre, country, year).
+        LongIndex cellIndex = new LongIndex();
+        int capacity = 64;
+        int[] cellGenre = new int[capacity];
+        int[] cellCountry = new int[capacity];
+        int[] cellYear = new int[capacity];
+        long[] money = new long[capacity];
+        long[] players = new long[capacity];
+        long[] tournaments = new long[capacity];
+        long[] rows = new long[capacity];
+        for (int row = 0; row < dataset.rowCount; row++) {
+            int cell = cellIndex.indexOf(cellKey(dataset, row));
+            if (cell == rows.length) {
+                capacity *= 2;
+                cellGenre = Arrays.copyOf(cellGenre, capacity);
+                cellCountry = Arrays.copyOf(cellCountry, capacity);
+                cellYear = Arrays.copyOf(cellYear, capacity);
+                money = Arrays.copyOf(money, capacity);
+                players = Arrays.copyOf(players, capacity);
+                tournaments = Arrays.copyOf(tournaments, capacity);
+                rows = Arrays.copyOf(rows, capacity);
+            }
+            if (rows[cell] == 0) {
+                cellGenre[cell] = dataset.genre[row];
+                cellCountry[cell] = dataset.topCountry[row];
+                cellYear[cell] = dataset.releaseYear[row];
+            }
+            money[cell] += dataset.totalMoneyCents[row];
+            players[cell] += dataset.playerNo[row];
+            tournaments[cell] += dataset.tournamentNo[row];
+            rows[cell]++;
+        }
+        int cells = cellIndex.size();
+
+        // Roll the cells up into every non-empty combination of dimensions.
+        for (Set<Dimension> dimensions : groupings()) {
+            StringDictionary labels = new StringDictionary();
+            List<String[]> groupParts = new ArrayList<>();
+            int[] groupOf = new int[cells];
+            for (int cell = 0; cell < cells; cell++) {
+                String[] parts = parts(dataset, dimensions, cellGenre[cell], cellCountry[cell], cellYear[cell]);
+                int code = labels.add(label(parts));
+                if (code == groupParts.size()) groupParts.add(parts);
+                groupOf[cell] = code;
+            }
+            int n = labels.size();
+            long[] groupMoney = new long[n];
+            long[] groupPlayers = new long[n];
+            long[] groupTournaments = new long[n];
+            long[] groupRows = new long[n];
+            for (int cell = 0; cell < cells; cell++) {
+                int g = groupOf[cell];
+                groupMoney[g] += money[cell];
+                groupPlayers[g] += players[cell];
+                groupTournaments[g] += tournaments[cell];
+                groupRows[g] += rows[cell];
+            }
+            groups.put(dimensions, new Group(labels, groupParts.toArray(new String[0][]), groupMoney, groupPlayers, groupTournaments, groupRows));
+        }
+    }
+
+    /** Returns the precomputed group for a non-empty set of dimensions. */
+    Group groupBy(Set<Dimension> dimensions) {
+        Group group = groups.get(dimensions);
+        if (group == null) throw new IllegalArgumentException("No grouping for " + dimensions);
+        return group;
+    }
+
+    /** Every non-empty combination of dimensions, single dimensions first. */
+    static List<Set<Dimension>> groupings() {
+        List<Set<Dimension>> result = new ArrayList<>();
+        Dimension[] all = Dimension.values();
+        for (int count = 1; count <= all.length; count++) {
+            for (int mask = 1; mask < (1 << all.length); mask++) {
+                if (Integer.bitCount(mask) != count) continue;
+                EnumSet<Dimension> set = EnumSet.noneOf(Dimension.class);
+                for (int i = 0; i < all.length; i++) {
+                    if ((mask & (1 << i)) != 0) set.add(all[i]);
+                }
+                result.add(Collections.unmodifiableSet(set));
+            }
+        }
+        return result;
+    }
+
+    /** Parses a comma-separated list of genre, country and year; game (or nothing) is the empty set. */
+    static Set<Dimension> parseGrouping(String value) {
+        EnumSet<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+        for (String name : value.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "game": case "": break;
+                case "genre": dimensions.add(Dimension.GENRE); break;
+                case "country": dimensions.add(Dimension.TOP_COUNTRY); break;
+                case "year": dimensions.add(Dimension.RELEASE_YEAR); break;
+                default: throw new IllegalArgumentException("Unknown group dimension: " + name);
+            }
+        }
+        return dimensions;
+    }
+
+    static String label(Set<Dimension> dimensions) {
+        StringBuilder label = new StringBuilder();
+        for (Dimension dimension : dimensions) {
+            if (label.length() > 0) label.append(" + ");
+            label.append(dimension.label);
+        }
+        return label.toString();
+    }
+
+    /**
+     * The (genre, country, year) cell of a row. Rows in one cell fall in the same group of
+     * every grouping, so groups are built from cells rather than rows.
+     */
+    static long cellKey(EarningsDataset dataset, int row) {
+        return ((long) dataset.genre[row] << 42) | ((long) dataset.topCountry[row] << 16) | dataset.releaseYear[row];
+    }
+
+    /** A group's label: its parts joined with " / ". */
+    static String label(String[] parts) {
+        return String.join(" / ", parts);
+    }
+
+    /** One group's value for each dimension, in enum order; label() joins them. */
+    static String[] parts(EarningsDataset dataset, Set<Dimension> dimensions, int genre, int country, int year) {
+        String[] parts = new String[dimensions.size()];
+        int p = 0;
+        for (Dimension dimension : dimensions) {
+            switch (dimension) {
+                case GENRE: parts[p++] = orUnknown(dataset.genres.get(genre)); break;
+                case TOP_COUNTRY: parts[p++] = orUnknown(dataset.countries.get(country)); break;
+                default: parts[p++] = year == 0 ? "Unknown" : String.valueOf(year);
+            }
+        }
+        return parts;
+    }
+
+    private static String orUnknown(String value) {
+        return value.isEmpty() ? "Unknown" : value;
+    }
+
+    // Open-addressing long -> dense index map; indexOf inserts unseen keys.
+    static class LongIndex {
+        private long[] keys = new long[64];
+        private int[] slots = new int[64]; // index + 1, or 0 for an empty slot
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int indexOf(long key) {
+            int mask = slots.length - 1;
+            int slot = (int) (key ^ (key >>> 29) ^ (key >>> 47)) * 0x9E3779B9 & mask;
+            while (slots[slot] != 0) {
+                if (keys[slot] == key) return slots[slot] - 1;
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            slots[slot] = ++size;
+            if (size * 2 > slots.length) rehash();
+            return size - 1;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = slots.length - 1;
+            for (int i = 0; i < oldSlots.length; i++) {
+                if (oldSlots[i] == 0) continue;
+                long key = oldKeys[i];
+                int slot = (int) (key ^ (key >>> 29) ^ (key >>> 47)) * 0x9E3779B9 & mask;
+                while (slots[slot] != 0) slot = (slot + 1) & mask;
+                keys[slot] = key;
+                slots[slot] = oldSlots[i];
+            }
+        }
+    }
+}
+
+/**
+ * EarningsTimeline holds cumulative earnings by release year for every grouping: the
+ * frame for year Y sums the rows whose Releaseyear is Y or earlier. Entries are coded
+ * in the order they first appear, so each frame is a prefix of one shared dictionary,
+ * and every frame is ranked when the timeline is built. Scrubbing to another year is
+ * an array lookup. Rows without a release year are left out of every frame.
+ */
+class EarningsTimeline {
+    private final short[] years; // distinct release years, ascending
+    private final long undatedRows;
+    private final Map<Set<EarningsCube.Dimension>, EarningsTable[]> frames = new HashMap<>();
+
+    EarningsTimeline(EarningsDataset dataset) {
+        int[] yearIndex = new int[Short.MAX_VALUE + 1];
+        long undated = 0;
+        for (int row = 0; row < dataset.rowCount; row++) {
+            int year = dataset.releaseYear[row];
+            if (year == 0) undated++;
+            else yearIndex[year] = 1;
+        }
+        int count = 0;
+        for (int year = 1; year < yearIndex.length; year++) {
+            if (yearIndex[year] != 0) count++;
+        }
+        years = new short[count];
+        for (int year = 1, i = 0; year < yearIndex.length; year++) {
+            if (yearIndex[year] != 0) {
+                years[i] = (short) year;
+                yearIndex[year] = i++;
+            }
+        }
+        undatedRows = undated;
+        if (count == 0) return;
+
+        // Dated rows bucketed by year (a counting sort), so each grouping is one sweep.
+        int[] bucketStart = new int[count + 1];
+        for (int row = 0; row < dataset.rowCount; row++) {
+            if (dataset.releaseYear[row] != 0) bucketStart[yearIndex[dataset.releaseYear[row]] + 1]++;
+        }
+        for (int y = 0; y < count; y++) bucketStart[y + 1] += bucketStart[y];
+        int[] byYear = new int[bucketStart[count]];
+        int[] next = Arrays.copyOf(bucketStart, count);
+        for (int row = 0; row < dataset.rowCount; row++) {
+            if (dataset.releaseYear[row] != 0) byYear[next[yearIndex[dataset.releaseYear[row]]]++] = row;
+        }
+
+        frames.put(Collections.emptySet(),
+                buildFrames(dataset.gameName, dataset.gameNames.size(), dataset.gameNames::get, dataset, byYear, bucketStart));
+        // Cube groups are labelled once per cell.
+        EarningsCube.LongIndex cellIndex = new EarningsCube.LongIndex();
+        int[] cellOf = new int[dataset.rowCount];
+        int[] cellRow = new int[16];
+        for (int row : byYear) {
+            int cells = cellIndex.size();
+            int cell = cellIndex.indexOf(EarningsCube.cellKey(dataset, row));
+            if (cell == cells) {
+                if (cell == cellRow.length) cellRow = Arrays.copyOf(cellRow, cell * 2);
+                cellRow[cell] = row;
+            }
+            cellOf[row] = cell;
+        }
+        int[] groupOf = new int[dataset.rowCount];
+        for (Set<EarningsCube.Dimension> dimensions : EarningsCube.groupings()) {
+            StringDictionary labels = new StringDictionary();
+            int[] groupOfCell = new int[cellIndex.size()];
+            for (int cell = 0; cell < groupOfCell.length; cell++) {
+                int row = cellRow[cell];
+                groupOfCell[cell] = labels.add(EarningsCube.label(EarningsCube.parts(dataset, dimensions,
+                        dataset.genre[row], dataset.topCountry[row], dataset.releaseYear[row])));
+            }
+            for (int row : byYear) groupOf[row] = groupOfCell[cellOf[row]];
+            frames.put(dimensions, buildFrames(groupOf, labels.size(), labels::get, dataset, byYear, bucketStart));
+        }
+    }
+
+    // Sweeps the years in order, adding each year's rows to running sums and snapshotting them.
+    private static EarningsTable[] buildFrames(int[] groupOf, int groups, java.util.function.IntFunction<String> label,
+                                               EarningsDataset dataset, int[] byYear, int[] bucketStart) {
+        int count = bucketStart.length - 1;
+        // Recode groups in first-appearance order so each frame covers codes [0, released).
+        int[] recode = new int[groups];
+        Arrays.fill(recode, -1);
+        StringDictionary keys = new StringDictionary();
+        for (int row : byYear) {
+            int group = groupOf[row];
+            if (recode[group] < 0) recode[group] = keys.add(label.apply(group));
+        }
+        long[] cents = new long[keys.size()];
+        EarningsTable[] result = new EarningsTable[count];
+        int released = 0;
+        for (int y = 0; y < count; y++) {
+            for (int i = bucketStart[y]; i < bucketStart[y + 1]; i++) {
+                int row = byYear[i];
+                int code = recode[groupOf[row]];
+                cents[code] += dataset.totalMoneyCents[row];
+                released = Math.max(released, code + 1);
+            }
+            double[] values = new double[released];
+            for (int i = 0; i < released; i++) values[i] = cents[i] / 100.0;
+            result[y] = new EarningsTable(keys, values);
+            result[y].rankIndex();
+        }
+        return result;
+    }
+
+    /** Number of distinct release years. */
+    int size() {
+        return years.length;
+    }
+
+    int yearAt(int index) {
+        return years[index];
+    }
+
+    /** Index of the latest year not after year, or -1 when every year is later. */
+    int indexAtOrBefore(int year) {
+        int lo = 0, hi = years.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (years[mid] <= year) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo - 1;
+    }
+
+    /** Rows with no usable Releaseyear; they appear in no frame. */
+    long undatedRows() {
+        return undatedRows;
+    }
+
+    /** Cumulative earnings of the entries released up to yearAt(index); grouping is empty for GameName. */
+    EarningsTable frame(Set<EarningsCube.Dimension> grouping, int index) {
+        EarningsTable[] byYear = frames.get(grouping);
+        if (byYear == null) throw new IllegalArgumentException("No grouping for " + grouping);
+        return byYear[index];
+    }
+}
+
+/**
+ * RowFilter is a parsed filter expression such as
+ * <pre>Genre = "Strategy" and Releaseyear &gt;= 2010 and PlayerNo &gt; 100</pre>
+ * Columns are the CSV header names (case-insensitive; game, country, year, players,
+ * tournaments and money also work). Numbers compare with = != &lt; &lt;= &gt; &gt;=, money
+ * in dollars and cents, compared exactly. Text compares with = and != (ignoring case), ~ (contains) and
+ * in ("a", "b"). Clauses combine with and, or, not and parentheses. A missing
+ * Releaseyear matches no comparison.
+ *
+ * Evaluation never looks at strings per row. Text clauses are resolved once against
+ * the dictionary into a table indexed by code, and each clause then scans one
+ * primitive column into a bitset, 64 rows per word. and, or and not combine whole
+ * bitsets word by word.
+ */
+final class RowFilter {
+    private enum Column {
+        ID_NO, TOTAL_MONEY, GAME_NAME, GENRE, PLAYER_NO, TOURNAMENT_NO, TOP_COUNTRY, TOP_COUNTRY_EARNINGS, RELEASE_YEAR;
+
+        boolean isText() {
+            return this == GAME_NAME || this == GENRE || this == TOP_COUNTRY;
+        }
+
+        boolean isMoney() {
+            return this == TOTAL_MONEY || this == TOP_COUNTRY_EARNINGS;
+        }
+    }
+
+    private static final Map<String, Column> COLUMNS = new HashMap<>();
+    static {
+        String[][] names = {
+                {"idno", "ID_NO"}, {"totalmoney", "TOTAL_MONEY"}, {"money", "TOTAL_MONEY"},
+                {"gamename", "GAME_NAME"}, {"game", "GAME_NAME"}, {"genre", "GENRE"},
+                {"playerno", "PLAYER_NO"}, {"players", "PLAYER_NO"},
+                {"tournamentno", "TOURNAMENT_NO"}, {"tournaments", "TOURNAMENT_NO"},
+                {"top_country", "TOP_COUNTRY"}, {"country", "TOP_COUNTRY"},
+                {"top_country_earnings", "TOP_COUNTRY_EARNINGS"},
+                {"releaseyear", "RELEASE_YEAR"}, {"year", "RELEASE_YEAR"}};
+        for (String[] name : names) COLUMNS.put(name[0], Column.valueOf(name[1]));
+    }
+
+    // A node evaluates to a bitset over the dataset's rows.
+    private interface Node {
+        long[] evaluate(EarningsDataset dataset);
+    }
+
+    private final String text;
+    private final Node root;
+
+    private RowFilter(String text, Node root) {
+        this.text = text;
+        this.root = root;
+    }
+
+    /** Parses and type-checks text; throws IllegalArgumentException naming the position of the problem. */
+    static RowFilter parse(String text) {
+        Parser parser = new Parser(text);
+        Node root = parser.or();
+        if (parser.peek() != null) throw parser.error("Unexpected '" + parser.peek() + "'");
+        return new RowFilter(text.trim(), root);
+    }
+
+    String text() {
+        return text;
+    }
+
+    /** Bitset of the rows that match; bit r of word r / 64 is row r. */
+    long[] matches(EarningsDataset dataset) {
+        return root.evaluate(dataset);
+    }
+
+    /** The matching rows as a dataset of their own. */
+    EarningsDataset select(EarningsDataset dataset) {
+        return dataset.select(matches(dataset));
+    }
+
+    // ---- Clauses ----
+
+    // lo <= value <= hi over a numeric column, in its stored units (cents for money).
+    private static Node range(Column column, long lo, long hi) {
+        return dataset -> {
+            int rows = dataset.rowCount;
+            long[] bits = new long[words(rows)];
+            switch (column) {
+                case TOTAL_MONEY: fill(bits, dataset.totalMoneyCents, rows, lo, hi); break;
+                case TOP_COUNTRY_EARNINGS: fill(bits, dataset.topCountryEarningsCents, rows, lo, hi); break;
+                case ID_NO: fill(bits, dataset.idNo, rows, lo, hi); break;
+                case PLAYER_NO: fill(bits, dataset.playerNo, rows, lo, hi); break;
+                case TOURNAMENT_NO: fill(bits, dataset.tournamentNo, rows, lo, hi); break;
+                default: fill(bits, dataset.releaseYear, rows, Math.max(lo, 1), hi); // 0 is missing
+            }
+            return bits;
+        };
+    }
+
+    // Every column holds whole units, so strict bounds are one unit in; lo > hi matches nothing.
+    private static Node below(Column column, long value) {
+        return value == Long.MIN_VALUE ? range(column, 1, 0) : range(column, Long.MIN_VALUE, value - 1);
+    }
+
+    private static Node above(Column column, long value) {
+        return value == Long.MAX_VALUE ? range(column, 1, 0) : range(column, value + 1, Long.MAX_VALUE);
+    }
+
+    private static void fill(long[] bits, long[] values, int rows, long lo, long hi) {
+        for (int row = 0; row < rows; row++) {
+            long value = values[row];
+            if (value >= lo && value <= hi) bits[row >>> 6] |= 1L << row;
+        }
+    }
+
+    private static void fill(long[] bits, int[] values, int rows, long lo, long hi) {
+        for (int row = 0; row < rows; row++) {
+            long value = values[row];
+            if (value >= lo && value <= hi) bits[row >>> 6] |= 1L << row;
+        }
+    }
+
+    private static void fill(long[] bits, short[] values, int rows, long lo, long hi) {
+        for (int row = 0; row < rows; row++) {
+            long value = values[row];
+            if (value >= lo && value <= hi) bits[row >>> 6] |= 1L << row;
+        }
+    }
+
+    // Text test resolved once per dictionary code, then looked up per row.
+    private static Node text(Column column, java.util.function.Predicate<String> test) {
+        return dataset -> {
+            StringDictionary dictionary;
+            int[] codes;
+            switch (column) {
+                case GAME_NAME: dictionary = dataset.gameNames; codes = dataset.gameName; break;
+                case GENRE: dictionary = dataset.genres; codes = dataset.genre; break;
+                default: dictionary = dataset.countries; codes = dataset.topCountry;
+            }
+            boolean[] matching = new boolean[dictionary.size()];
+            for (int code = 0; code < matching.length; code++) matching[code] = test.test(dictionary.get(code));
+            int rows = dataset.rowCount;
+            long[] bits = new long[words(rows)];
+            for (int row = 0; row < rows; row++) {
+                if (matching[codes[row]]) bits[row >>> 6] |= 1L << row;
+            }
+            return bits;
+        };
+    }
+
+    private static Node and(Node left, Node right) {
+        return dataset -> {
+            long[] bits = left.evaluate(dataset);
+            long[] other = right.evaluate(dataset);
+            for (int w = 0; w < bits.length; w++) bits[w] &= other[w];
+            return bits;
+        };
+    }
+
+    private static Node or(Node left, Node right) {
+        return dataset -> {
+            long[] bits = left.evaluate(dataset);
+            long[] other = right.evaluate(dataset);
+            for (int w = 0; w < bits.length; w++) bits[w] |= other[w];
+            return bits;
+        };
+    }
+
+    private static Node not(Node operand) {
+        return dataset -> {
+            long[] bits = operand.evaluate(dataset);
+            for (int w = 0; w < bits.length; w++) bits[w] = ~bits[w];
+            int tail = dataset.rowCount & 63;
+            if (tail != 0) bits[bits.length - 1] &= (1L << tail) - 1;
+            return bits;
+        };
+    }
+
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+
+    // ---- Parsing ----
+
+    // Recursive descent: or := and ("or" and)*, and := unary ("and" unary)*, unary := "not" unary | "(" or ")" | clause
+    private static final class Parser {
+        private final String text;
+        private int pos;
+        private int tokenStart;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Node or() {
+            Node node = and();
+            while (acceptWord("or")) node = RowFilter.or(node, and());
+            return node;
+        }
+
+        Node and() {
+            Node node = unary();
+            while (acceptWord("and")) node = RowFilter.and(node, unary());
+            return node;
+        }
+
+        Node unary() {
+            if (acceptWord("not")) return RowFilter.not(unary());
+            if (accept("(")) {
+                Node node = or();
+                expect(")");
+                return node;
+            }
+            return clause();
+        }
+
+        Node clause() {
+            String name = peek();
+            if (name == null || !Character.isLetter(name.charAt(0))) throw error("Expected a column name");
+            Column column = COLUMNS.get(name.toLowerCase(Locale.ROOT));
+            if (column == null) throw error("Unknown column '" + name + "'");
+            pos = tokenStart + name.length();
+            if (acceptWord("in")) {
+                if (!column.isText()) throw error("'in' needs a text column");
+                expect("(");
+                Set<String> values = new HashSet<>();
+                do {
+                    values.add(string().toLowerCase(Locale.ROOT));
+                } while (accept(","));
+                expect(")");
+                return text(column, value -> values.contains(value.toLowerCase(Locale.ROOT)));
+            }
+            String op = operator();
+            if (column.isText()) {
+                if (!op.equals("=") && !op.equals("!=") && !op.equals("~")) {
+                    pos = tokenStart;
+                    throw error("Text columns compare with =, !=, ~ or in");
+                }
+                String literal = string();
+                switch (op) {
+                    case "=": return text(column, value -> value.equalsIgnoreCase(literal));
+                    case "!=": return text(column, value -> !value.equalsIgnoreCase(literal));
+                    case "~":
+                        String needle = literal.toLowerCase(Locale.ROOT);
+                        return text(column, value -> value.toLowerCase(Locale.ROOT).contains(needle));
+                    default: throw new AssertionError(op);
+                }
+            }
+            if (op.equals("~")) {
+                pos = tokenStart;
+                throw error("Number columns compare with =, !=, <, <=, > or >=");
+            }
+            long value = number(column.isMoney());
+            switch (op) {
+                case "=": return range(column, value, value);
+                case "!=": return RowFilter.or(below(column, value), above(column, value));
+                case "<": return below(column, value);
+                case "<=": return range(column, Long.MIN_VALUE, value);
+                case ">": return above(column, value);
+                case ">=": return range(column, value, Long.MAX_VALUE);
+                default: throw new AssertionError(op);
+            }
+        }
+
+        String operator() {
+            skipSpace();
+            tokenStart = pos;
+            for (String op : new String[] {"!=", "<>", "<=", ">=", "==", "=", "<", ">", "~"}) {
+                if (text.startsWith(op, pos)) {
+                    pos += op.length();
+                    return op.equals("<>") ? "!=" : op.equals("==") ? "=" : op;
+                }
+            }
+            throw error("Expected a comparison (=, !=, <, <=, >, >=, ~ or in)");
+        }
+
+        String string() {
+            skipSpace();
+            if (pos >= text.length() || (text.charAt(pos) != '"' && text.charAt(pos) != '\'')) {
+                throw error("Expected a quoted string");
+            }
+            char quote = text.charAt(pos++);
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) throw error("Unterminated string");
+                char c = text.charAt(pos++);
+                if (c == quote) {
+                    if (pos < text.length() && text.charAt(pos) == quote) {
+                        value.append(quote); // doubled quote
+                        pos++;
+                    } else {
+                        return value.toString();
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+        }
+
+        // Parsed exactly: money becomes whole cents, anything else must be a whole number.
+        long number(boolean money) {
+            skipSpace();
+            int start = pos;
+            if (pos < text.length() && (text.charAt(pos) == '-' || text.charAt(pos) == '+')) pos++;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) pos++;
+            java.math.BigDecimal value;
+            try {
+                value = new java.math.BigDecimal(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("Expected a number");
+            }
+            if (money) value = value.movePointRight(2);
+            if (value.stripTrailingZeros().scale() > 0) {
+                pos = start;
+                throw error(money ? "Money has at most two decimal places" : "Expected a whole number");
+            }
+            if (value.compareTo(java.math.BigDecimal.valueOf(Long.MAX_VALUE)) > 0) return Long.MAX_VALUE;
+            if (value.compareTo(java.math.BigDecimal.valueOf(Long.MIN_VALUE)) < 0) return Long.MIN_VALUE;
+            return value.longValueExact();
+        }
+
+        // The next word or symbol, without consuming it; null at the end.
+        String peek() {
+            skipSpace();
+            tokenStart = pos;
+            if (pos >= text.length()) return null;
+            char c = text.charAt(pos);
+            if (!Character.isLetter(c) && c != '_') return String.valueOf(c);
+            int end = pos;
+            while (end < text.length() && (Character.isLetterOrDigit(text.charAt(end)) || text.charAt(end) == '_')) end++;
+            return text.substring(pos, end);
+        }
+
+        boolean acceptWord(String word) {
+            String next = peek();
+            if (next == null || !next.equalsIgnoreCase(word)) return false;
+            pos += next.length();
+            return true;
+        }
+
+        boolean accept(String symbol) {
+            skipSpace();
+            if (!text.startsWith(symbol, pos)) return false;
+            pos += symbol.length();
+            return true;
+        }
+
+        void expect(String symbol) {
+            if (!accept(symbol)) throw error("Expected '" + symbol + "'");
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            skipSpace();
+            return new IllegalArgumentException(message + " at position " + (pos + 1));
+        }
+    }
+}
+
+/**
+ * StringDictionary assigns dense int codes to strings in first-seen order. Lookups
+ * hash the raw UTF-8 bytes with open addressing, so encoding a value that was seen
+ * before allocates nothing; Strings are only decoded when get() asks for them.
+ */
+class StringDictionary {
+    private static final byte[] EMPTY = new byte[0];
+
+    private int[] slots = new int[16]; // code + 1, or 0 for an empty slot
+    private int[] hashes = new int[8];
+    private byte[][] keyBytes = new byte[8][];
+    private String[] strings = new String[8];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public String get(int code) {
+        String value = strings[code];
+        if (value == null) {
+            value = new String(keyBytes[code], java.nio.charset.StandardCharsets.UTF_8);
+            strings[code] = value;
+        }
+        return value;
+    }
+
+    /** Returns the code of value, or -1 if it has never been added. */
+    public int find(String value) {
+        byte[] utf8 = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        int hash = hash(utf8, utf8.length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int code = slots[slot] - 1;
+            if (hashes[code] == hash && sameKey(keyBytes[code], utf8, utf8.length)) return code;
+        }
+        // Values read from malformed UTF-8 decode to U+FFFD and don't re-encode to the stored bytes.
+        if (value.indexOf('\uFFFD') >= 0) {
+            for (int code = 0; code < size; code++) {
+                if (get(code).equals(value)) return code;
+            }
+        }
+        return -1;
+    }
+
+    public int add(String value) {
+        byte[] utf8 = value.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+        return add(utf8, utf8.length, hash(utf8, utf8.length), value);
+    }
+
+    /** Returns the code for utf8[0, length); the array is copied only for new values. */
+    public int add(byte[] utf8, int length) {
+        if (length == 0) utf8 = EMPTY;
+        return add(utf8, length, hash(utf8, length), null);
+    }
+
+    /** Adds other's value for code without decoding it, and returns its code here. */
+    public int addFrom(StringDictionary other, int code) {
+        byte[] utf8 = other.keyBytes[code];
+        return add(utf8, utf8.length, other.hashes[code], other.strings[code]);
+    }
+
+    /** Adds every value of other and returns the mapping from other's codes to this dictionary's. */
+    public int[] addAll(StringDictionary other) {
+        int[] remap = new int[other.size];
+        for (int code = 0; code < other.size; code++) {
+            byte[] utf8 = other.keyBytes[code];
+            remap[code] = add(utf8, utf8.length, other.hashes[code], other.strings[code]);
+        }
+        return remap;
+    }
+
+    private int add(byte[] utf8, int length, int hash, String value) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int code = slots[slot] - 1;
+            if (hashes[code] == hash && sameKey(keyBytes[code], utf8, length)) return code;
+            slot = (slot + 1) & mask;
+        }
+        if (size == hashes.length) {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyBytes = Arrays.copyOf(keyBytes, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        int code = size++;
+        hashes[code] = hash;
+        keyBytes[code] = Arrays.copyOf(utf8, length);
+        strings[code] = value;
+        slots[slot] = code + 1;
+        if (size * 2 > slots.length) rehash();
+        return code;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int code = 0; code < size; code++) {
+            int slot = hashes[code] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = code + 1;
+        }
+    }
+
+    private static boolean sameKey(byte[] stored, byte[] utf8, int length) {
+        return stored.length == length && Arrays.equals(stored, 0, length, utf8, 0, length);
+    }
+
+    void writeTo(EarningsSnapshot.Output out) throws IOException {
+        out.putInt(size);
+        for (int code = 0; code < size; code++) {
+            out.putInt(keyBytes[code].length);
+            out.putBytes(keyBytes[code]);
+        }
+    }
+
+    /** Reads values written by writeTo; codes come back in the same order. */
+    static StringDictionary readFrom(EarningsSnapshot.Input in) throws IOException {
+        StringDictionary dictionary = new StringDictionary();
+        int count = in.getInt();
+        for (int code = 0; code < count; code++) {
+            byte[] utf8 = in.getBytes(in.getInt());
+            if (dictionary.add(utf8, utf8.length) != code) throw new IOException("Duplicate dictionary value");
+        }
+        return dictionary;
+    }
+
+    private static int hash(byte[] utf8, int length) {
+        int h = 1;
+        for (int i = 0; i < length; i++) h = 31 * h + utf8[i];
+        return h ^ (h >>> 16);
+    }
+}
+
+/**
+ * EarningsTable maps labels to totals: entry i is label keys.get(i) with value
+ * values[i]. Values live in a plain double[], so reading, ranking or adding to an
+ * entry never boxes. Tables derived from a dataset share its dictionary.
+ */
+class EarningsTable {
+    private final StringDictionary keys;
+    private double[] values;
+    private int size;
+    private RankIndex rankIndex;
+    private TitleSearchIndex searchIndex;
+
+    /** An empty table that owns its own dictionary and can be added to. */
+    EarningsTable() {
+        this(new StringDictionary(), new double[8]);
+        size = 0;
+    }
+
+    EarningsTable(StringDictionary keys, double[] values) {
+        this.keys = keys;
+        this.values = values;
+        this.size = values.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String keyAt(int index) {
+        return keys.get(index);
+    }
+
+    public double valueAt(int index) {
+        return values[index];
+    }
+
+    /** Returns the entry index of key, or -1. */
+    public int indexOf(String key) {
+        int index = keys.find(key);
+        return index < size ? index : -1;
+    }
+
+    public void add(String key, double amount) {
+        int index = keys.add(key);
+        if (index >= values.length) values = Arrays.copyOf(values, Math.max(index + 1, values.length * 2));
+        values[index] += amount;
+        size = Math.max(size, index + 1);
+        rankIndex = null;
+        searchIndex = null;
+    }
+
+    public double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) max = Math.max(max, values[i]);
+        return max;
+    }
+
+    /** The ranking of this table, built on first use and kept until the table changes. */
+    public synchronized RankIndex rankIndex() {
+        if (rankIndex == null) rankIndex = new RankIndex(this);
+        return rankIndex;
+    }
+
+    /** Substring search over the keys, best-earning first; built on first use like rankIndex(). */
+    public synchronized TitleSearchIndex searchIndex() {
+        if (searchIndex == null) searchIndex = new TitleSearchIndex(rankIndex());
+        return searchIndex;
+    }
+
+    /** Entry indices ordered by value, largest first; ties keep insertion order. */
+    public int[] indicesByValueDescending() {
+        double[] values = this.values;
+        return sortIndices(size, (a, b) -> Double.compare(values[b], values[a]));
+    }
+
+    /**
+     * The indices 0 to size - 1 ordered by compare; stable, so ties keep index order.
+     * A bottom-up merge sort on primitive indices, without boxing them.
+     */
+    static int[] sortIndices(int size, java.util.function.IntBinaryOperator compare) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        int[] scratch = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, size);
+                int i = lo, j = mid, k = lo;
+                while (i < mid && j < hi) {
+                    scratch[k++] = compare.applyAsInt(order[j], order[i]) < 0 ? order[j++] : order[i++];
+                }
+                while (i < mid) scratch[k++] = order[i++];
+                while (j < hi) scratch[k++] = order[j++];
+                System.arraycopy(scratch, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+}
+
+/**
+ * RankIndex is an EarningsTable sorted by value (largest first) together with suffix
+ * sums, so a Top-N view with an "Other" bucket is O(N) to produce regardless of how
+ * many entries the table holds.
+ */
+class RankIndex {
+    private final EarningsTable table;
+    private final int[] order;
+    private final double[] sortedValues;
+    private final double[] suffixSums; // suffixSums[r] = sum of the values ranked r and below
+
+    RankIndex(EarningsTable table) {
+        this.table = table;
+        this.order = table.indicesByValueDescending();
+        int n = order.length;
+        sortedValues = new double[n];
+        suffixSums = new double[n + 1];
+        for (int r = 0; r < n; r++) sortedValues[r] = table.valueAt(order[r]);
+        for (int r = n - 1; r >= 0; r--) suffixSums[r] = suffixSums[r + 1] + sortedValues[r];
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /** Table entry index of the given rank. */
+    public int entryAt(int rank) {
+        return order[rank];
+    }
+
+    public String keyAt(int rank) {
+        return table.keyAt(order[rank]);
+    }
+
+    public double valueAt(int rank) {
+        return sortedValues[rank];
+    }
+
+    /** Number of entries whose value is at least threshold, by binary search. */
+    public int countAtLeast(double threshold) {
+        int lo = 0, hi = sortedValues.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedValues[mid] >= threshold) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** Sum of the values ranked at or below rank; 0 past the end. */
+    public double sumFrom(int rank) {
+        return suffixSums[Math.min(rank, order.length)];
+    }
+}
+
+/**
+ * TitleSearchIndex finds the entries of a ranked table whose label contains a typed
+ * fragment, ignoring case, best-earning first. Every lowercase trigram of every label
+ * maps to the ranks of the labels containing it. A query walks the shortest of its
+ * trigrams' lists in rank order, checks the others by binary search and confirms each
+ * candidate with contains(), so it stops after the first few matches however common
+ * the fragment is. One- and two-character queries scan the labels in rank order.
+ */
+class TitleSearchIndex {
+    /** One result: the entry's rank (0 = highest earning), label and value. */
+    static final class Match {
+        final int rank;
+        final String label;
+        final double value;
+
+        Match(int rank, String label, double value) {
+            this.rank = rank;
+            this.label = label;
+            this.value = value;
+        }
+    }
+
+    private final RankIndex rank;
+    private final String[] lowered; // by rank
+    // Open-addressed trigram -> id table; a trigram is packed as three chars plus a marker bit.
+    private long[] gramKeys = new long[1024];
+    private int[] gramIds = new int[1024];
+    private int gramCount;
+    private final int[] postingStart; // postings of id g are [postingStart[g], postingStart[g + 1])
+    private final int[] postings; // ranks, ascending within each trigram
+
+    TitleSearchIndex(RankIndex rank) {
+        this.rank = rank;
+        int n = rank.size();
+        lowered = new String[n];
+        for (int r = 0; r < n; r++) lowered[r] = rank.keyAt(r).toLowerCase(Locale.ROOT);
+        // Pass 1 assigns ids and counts each trigram once per label; pass 2 fills the lists.
+        int[] counts = new int[256];
+        int[] lastRank = new int[256];
+        for (int r = 0; r < n; r++) {
+            String label = lowered[r];
+            for (int i = 0; i + 3 <= label.length(); i++) {
+                int id = idOf(gram(label, i), true);
+                if (id >= counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                    lastRank = Arrays.copyOf(lastRank, lastRank.length * 2);
+                }
+                if (counts[id] == 0 || lastRank[id] != r) {
+                    counts[id]++;
+                    lastRank[id] = r;
+                }
+            }
+        }
+        postingStart = new int[gramCount + 1];
+        for (int g = 0; g < gramCount; g++) postingStart[g + 1] = postingStart[g] + counts[g];
+        postings = new int[postingStart[gramCount]];
+        int[] next = Arrays.copyOf(postingStart, gramCount);
+        for (int r = 0; r < n; r++) {
+            String label = lowered[r];
+            for (int i = 0; i + 3 <= label.length(); i++) {
+                int id = idOf(gram(label, i), false);
+                if (next[id] == postingStart[id] || postings[next[id] - 1] != r) postings[next[id]++] = r;
+            }
+        }
+    }
+
+    /** Up to limit entries containing text, by rank. */
+    List<Match> search(String text, int limit) {
+        String query = text.trim().toLowerCase(Locale.ROOT);
+        List<Match> matches = new ArrayList<>();
+        if (query.isEmpty() || limit <= 0) return matches;
+        if (query.length() < 3) {
+            for (int r = 0; r < lowered.length && matches.size() < limit; r++) {
+                if (lowered[r].contains(query)) matches.add(match(r));
+            }
+            return matches;
+        }
+        int grams = query.length() - 2;
+        int[] ids = new int[grams];
+        for (int i = 0; i < grams; i++) {
+            ids[i] = idOf(gram(query, i), false);
+            if (ids[i] < 0) return matches; // a trigram no label has
+        }
+        // Shortest list drives; the rest are checked smallest first so misses are found early.
+        Integer[] order = new Integer[grams];
+        for (int i = 0; i < grams; i++) order[i] = ids[i];
+        Arrays.sort(order, (x, y) -> Integer.compare(size(x), size(y)));
+        int[] cursors = new int[grams];
+        int[] ends = new int[grams];
+        for (int i = 0; i < grams; i++) {
+            cursors[i] = postingStart[order[i]];
+            ends[i] = postingStart[order[i] + 1];
+        }
+        candidates:
+        for (int p = cursors[0]; p < ends[0] && matches.size() < limit; p++) {
+            int r = postings[p];
+            for (int i = 1; i < grams; i++) {
+                // Ranks only grow, so each list's search resumes where the last one ended.
+                cursors[i] = seek(cursors[i], ends[i], r);
+                if (cursors[i] == ends[i]) break candidates;
+                if (postings[cursors[i]] != r) continue candidates;
+            }
+            if (lowered[r].contains(query)) matches.add(match(r));
+        }
+        return matches;
+    }
+
+    // First position in [from, end) whose rank is at least r: gallop, then binary search.
+    private int seek(int from, int end, int r) {
+        int step = 1;
+        int hi = from;
+        while (hi < end && postings[hi] < r) {
+            from = hi + 1;
+            hi += step;
+            step <<= 1;
+        }
+        hi = Math.min(hi, end);
+        int found = Arrays.binarySearch(postings, from, hi, r);
+        return found >= 0 ? found : -found - 1;
+    }
+
+    int size() {
+        return lowered.length;
+    }
+
+    private Match match(int r) {
+        return new Match(r, rank.keyAt(r), rank.valueAt(r));
+    }
+
+    private int size(int id) {
+        return postingStart[id + 1] - postingStart[id];
+    }
+
+    private static long gram(String text, int i) {
+        return 1L << 48 | (long) text.charAt(i) << 32 | (long) text.charAt(i + 1) << 16 | text.charAt(i + 2);
+    }
+
+    // Returns the trigram's id, adding it when create is set; -1 if absent.
+    private int idOf(long gram, boolean create) {
+        int mask = gramKeys.length - 1;
+        int slot = slot(gram, mask);
+        while (gramKeys[slot] != 0) {
+            if (gramKeys[slot] == gram) return gramIds[slot];
+            slot = (slot + 1) & mask;
+        }
+        if (!create) return -1;
+        if (2 * (gramCount + 1) > gramKeys.length) {
+            grow();
+            return idOf(gram, true);
+        }
+        gramKeys[slot] = gram;
+        gramIds[slot] = gramCount;
+        return gramCount++;
+    }
+
+    private void grow() {
+        long[] oldKeys = gramKeys;
+        int[] oldIds = gramIds;
+        gramKeys = new long[oldKeys.length * 2];
+        gramIds = new int[oldKeys.length * 2];
+        int mask = gramKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = slot(oldKeys[i], mask);
+            while (gramKeys[slot] != 0) slot = (slot + 1) & mask;
+            gramKeys[slot] = oldKeys[i];
+            gramIds[slot] = oldIds[i];
+        }
+    }
+
+    private static int slot(long gram, int mask) {
+        return (int) (gram * 0x9E3779B97F4A7C15L >>> 32) & mask;
+    }
+}
 
 /**
- * RoundedBorder is a helper class that draws rounded borders.
+ * EarningsSketch summarizes TotalMoney per GameName in memory that does not grow with
+ * the input. The heaviest titles are tracked by a weighted Space-Saving summary of a
+ * fixed number of counters: a title that is not tracked takes over the smallest
+ * counter and inherits its count as its possible error. Each tracked amount is
+ * therefore at most error() above the truth, any title earning more than
+ * maxError() is guaranteed to be tracked, and the counters always sum to the exact
+ * total, so "Other" is exact less the overstatement of the titles shown.
+ *
+ * Distinct titles and countries are estimated with HyperLogLog (2^14 registers,
+ * about 0.8% standard error).
  */
-class RoundedBorder extends AbstractBorder {
-    private Color color;
-    private int thickness;
-    private int radius;
+class EarningsSketch {
+    static final int DEFAULT_COUNTERS = 1000;
 
-    public RoundedBorder(Color color, int thickness, int radius) {
-        this.color = color;
-        this.thickness = thickness;
-        this.radius = radius;
+    private final int capacity;
+    private final String[] keys;
+    private final long[] counts; // cents
+    private final long[] errors; // cents a counter may be overstated by
+    private final int[] heap; // counter indices, smallest count first
+    private final int[] heapPos; // position of each counter in heap
+    private final Map<String, Integer> counters;
+    private int size;
+    private long totalCents;
+    private long rowCount; // rows read, before any filter
+    private long matchedRows;
+    private long rejectedRows;
+    private final HyperLogLog titles = new HyperLogLog();
+    private final HyperLogLog countries = new HyperLogLog();
+
+    EarningsSketch(int capacity) {
+        this.capacity = capacity;
+        keys = new String[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapPos = new int[capacity];
+        counters = new HashMap<>(capacity * 2);
     }
 
-    @Override
-    public void paintBorder(Component c, Graphics g, int x, int y, int width, int height) {
-        Graphics2D g2 = (Graphics2D) g.create();
-        g2.setColor(color);
-        g2.setStroke(new BasicStroke(thickness));
-        g2.drawRoundRect(x, y, width - thickness, height - thickness, radius, radius);
-        g2.dispose();
+    /**
+     * Folds in a chunk of rows. The chunk is summed per title first, so each title costs
+     * one counter update per chunk rather than one per row; the guarantees hold either way.
+     */
+    void add(EarningsDataset chunk) {
+        long[] cents = new long[chunk.gameNames.size()];
+        for (int row = 0; row < chunk.rowCount; row++) {
+            cents[chunk.gameName[row]] += chunk.totalMoneyCents[row];
+        }
+        for (int code = 0; code < cents.length; code++) {
+            String title = chunk.gameNames.get(code);
+            titles.add(title);
+            // Builder.append rejects negative amounts, so skipping zero sums leaves the total exact.
+            if (cents[code] > 0) offer(title, cents[code]);
+        }
+        for (int code = 0; code < chunk.countries.size(); code++) {
+            String country = chunk.countries.get(code);
+            if (!country.isEmpty()) countries.add(country);
+        }
+        matchedRows += chunk.rowCount;
+    }
+
+    /** Counts rows read, whether or not a filter let them through to add(). */
+    void addScanned(long rows, long rejected) {
+        rowCount += rows;
+        rejectedRows += rejected;
+    }
+
+    private void offer(String key, long weight) {
+        totalCents += weight;
+        Integer counter = counters.get(key);
+        if (counter != null) {
+            counts[counter] += weight;
+            siftDown(heapPos[counter]);
+        } else if (size < capacity) {
+            int index = size++;
+            keys[index] = key;
+            counts[index] = weight;
+            heap[index] = index;
+            heapPos[index] = index;
+            counters.put(key, index);
+            siftUp(index);
+        } else {
+            int smallest = heap[0];
+            counters.remove(keys[smallest]);
+            errors[smallest] = counts[smallest];
+            counts[smallest] += weight;
+            keys[smallest] = key;
+            counters.put(key, smallest);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int position) {
+        int counter = heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[counter]) break;
+            place(heap[parent], position);
+            position = parent;
+        }
+        place(counter, position);
+    }
+
+    private void siftDown(int position) {
+        int counter = heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) break;
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[heap[child]] >= counts[counter]) break;
+            place(heap[child], position);
+            position = child;
+        }
+        place(counter, position);
+    }
+
+    private void place(int counter, int position) {
+        heap[position] = counter;
+        heapPos[counter] = position;
+    }
+
+    /** The tracked titles with their estimated earnings; the values sum to the exact total. */
+    EarningsTable table() {
+        StringDictionary names = new StringDictionary();
+        double[] values = new double[size];
+        for (int i = 0; i < size; i++) {
+            names.add(keys[i]);
+            values[i] = counts[i] / 100.0;
+        }
+        return new EarningsTable(names, values);
+    }
+
+    /** Dollars the tracked title may be overstated by; 0 for titles that are not tracked. */
+    double error(String title) {
+        Integer counter = counters.get(title);
+        return counter == null ? 0 : errors[counter] / 100.0;
+    }
+
+    /** The largest possible overstatement, and the earnings above which a title is always tracked. */
+    double maxError() {
+        return size < capacity ? 0 : counts[heap[0]] / 100.0;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    double total() {
+        return totalCents / 100.0;
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    long matchedRows() {
+        return matchedRows;
+    }
+
+    long rejectedRows() {
+        return rejectedRows;
+    }
+
+    long distinctTitles() {
+        return titles.estimate();
+    }
+
+    long distinctCountries() {
+        return countries.estimate();
+    }
+
+    double distinctError() {
+        return HyperLogLog.STANDARD_ERROR;
+    }
+
+    /** HyperLogLog over strings with 2^14 one-byte registers. */
+    static final class HyperLogLog {
+        private static final int P = 14;
+        private static final int M = 1 << P;
+        static final double STANDARD_ERROR = 1.04 / Math.sqrt(M);
+        private final byte[] registers = new byte[M];
+
+        void add(String value) {
+            long hash = hash(value);
+            int register = (int) (hash >>> (64 - P));
+            int rank = Math.min(Long.numberOfLeadingZeros(hash << P), 64 - P) + 1;
+            if (rank > registers[register]) registers[register] = (byte) rank;
+        }
+
+        long estimate() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) zeros++;
+            }
+            double alpha = 0.7213 / (1 + 1.079 / M);
+            double estimate = alpha * M * M / sum;
+            // Linear counting is more accurate while many registers are still empty.
+            if (estimate <= 2.5 * M && zeros > 0) estimate = M * Math.log((double) M / zeros);
+            return Math.round(estimate);
+        }
+
+        // FNV-1a over the chars, then the MurmurHash3 finalizer to spread the bits.
+        private static long hash(String value) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
+
+/**
+ * CsvRecordScanner finds where records end in raw CSV bytes without parsing fields.
+ * It follows CsvTokenizer's quote rules: a quote opens a quoted field only at the
+ * start of a field (after optional spaces), a doubled quote inside one is literal,
+ * and any other quote is an ordinary byte. A line break ends a record only outside
+ * a quoted field. The scan starts on a record boundary, such as offset 0, or just
+ * after a line break known to be inside a quoted field.
+ */
+class CsvRecordScanner {
+    private boolean quoted;
+    private boolean quoteSeen; // a quote inside a quoted field: closes it unless another follows
+    private boolean fieldStart;
+    private boolean recordStart;
+
+    CsvRecordScanner() {
+        this(false);
+    }
+
+    /** insideQuotes: the scan starts just after a line break within a quoted field. */
+    CsvRecordScanner(boolean insideQuotes) {
+        quoted = insideQuotes;
+        fieldStart = !insideQuotes;
+        recordStart = !insideQuotes;
+    }
+
+    /**
+     * Feeds bytes[from, to) and returns the index just past the last line break among
+     * them that ends a record, or -1 if none does.
+     */
+    int scan(java.nio.ByteBuffer bytes, int from, int to) {
+        return scan(bytes, from, to, false);
+    }
+
+    /**
+     * Feeds bytes from index from up to and including the first line break that ends a
+     * record, and returns the index just past it; feeds all of bytes[from, to) and
+     * returns -1 if no record ends there.
+     */
+    int next(java.nio.ByteBuffer bytes, int from, int to) {
+        return scan(bytes, from, to, true);
+    }
+
+    private int scan(java.nio.ByteBuffer bytes, int from, int to, boolean first) {
+        int end = -1;
+        for (int i = from; i < to; i++) {
+            byte b = bytes.get(i);
+            recordStart = false;
+            if (quoted) {
+                if (!quoteSeen) {
+                    quoteSeen = b == '"';
+                    continue;
+                }
+                quoteSeen = false;
+                if (b == '"') continue;
+                quoted = false;
+            }
+            if (b == '\n') {
+                fieldStart = true;
+                recordStart = true;
+                end = i + 1;
+                if (first) break;
+            } else if (b == ',' || b == '\r') {
+                fieldStart = true;
+            } else if (b == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else if (b != ' ' && b != '\t') {
+                fieldStart = false;
+            }
+        }
+        return end;
+    }
+
+    /** True when everything fed so far ends with a complete record. */
+    boolean atRecordStart() {
+        return recordStart;
+    }
+}
+
+/**
+ * CsvTokenizer reads RFC 4180 records from a UTF-8 byte stream in a single pass.
+ * Only the requested columns are copied out (unquoted and trimmed); all other
+ * fields are skipped in place, so a record costs no allocations until text() is called.
+ */
+class CsvTokenizer implements Closeable {
+    /** Returned by cents() and longValue() when a field is empty or not a number. */
+    static final long NO_VALUE = Long.MIN_VALUE;
+
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final java.nio.ByteBuffer source;
+    private final byte[] buf = new byte[1 << 16];
+    private int pos;
+    private int limit;
+    private long bytesConsumed;
+
+    // Per-column scratch space for the requested columns (null for skipped ones).
+    private final byte[][] fields;
+    private final int[] lengths;
+    private int fieldCount;
+    private boolean blank;
+    private boolean endedInQuote;
+
+    public CsvTokenizer(InputStream in, int... columns) {
+        this(in, null, columns);
+    }
+
+    /** Reads from a buffer, e.g. one memory-mapped chunk of a larger file. */
+    public CsvTokenizer(java.nio.ByteBuffer source, int... columns) {
+        this(null, source, columns);
+    }
+
+    private CsvTokenizer(InputStream in, java.nio.ByteBuffer source, int[] columns) {
+        this.in = in;
+        this.source = source;
+        int maxColumn = 0;
+        for (int c : columns) maxColumn = Math.max(maxColumn, c);
+        fields = new byte[maxColumn + 1][];
+        lengths = new int[maxColumn + 1];
+        for (int c : columns) fields[c] = new byte[64];
+    }
+
+    /** Advances to the next record. Returns false at end of input. */
+    public boolean nextRecord() throws IOException {
+        int b = read();
+        if (b < 0) return false;
+        Arrays.fill(lengths, 0);
+        fieldCount = 0;
+        blank = true;
+        while (true) {
+            int column = fieldCount++;
+            byte[] field = column < fields.length ? fields[column] : null;
+            int len = 0;
+            int trimmedLen = 0;
+            // Leading whitespace is never part of a field.
+            while (b == ' ' || b == '\t') b = read();
+            if (b == '"') {
+                blank = false;
+                while (true) {
+                    b = read();
+                    if (b < 0) {
+                        endedInQuote = true;
+                        break;
+                    }
+                    if (b == '"') {
+                        b = read();
+                        if (b != '"') break;
+                    }
+                    if (field != null) field = put(column, field, len, b);
+                    len++;
+                }
+                trimmedLen = len;
+            }
+            // Unquoted content, or stray bytes after a closing quote.
+            while (b >= 0 && b != ',' && b != '\n' && b != '\r') {
+                blank = false;
+                if (field != null) field = put(column, field, len, b);
+                len++;
+                if (b != ' ' && b != '\t') trimmedLen = len;
+                b = read();
+            }
+            if (column < lengths.length) lengths[column] = trimmedLen;
+            if (b == ',') {
+                blank = false; // a row of empty fields is a record, not a blank line
+                b = read();
+                continue;
+            }
+            if (b == '\r' && peek() == '\n') read();
+            return true;
+        }
+    }
+
+    private byte[] put(int column, byte[] field, int len, int b) {
+        if (len == field.length) {
+            field = Arrays.copyOf(field, len * 2);
+            fields[column] = field;
+        }
+        field[len] = (byte) b;
+        return field;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        bytesConsumed++;
+        return buf[pos++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buf[pos] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        if (source != null) {
+            n = Math.min(buf.length, source.remaining());
+            source.get(buf, 0, n);
+        } else {
+            n = in.read(buf, 0, buf.length);
+        }
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /** True when the record is an empty or whitespace-only line: a single field with nothing in it. */
+    public boolean isBlank() {
+        return blank;
+    }
+
+    public long bytesConsumed() {
+        return bytesConsumed;
+    }
+
+    /** True if the input ended before a quoted field was closed. */
+    public boolean endedInQuote() {
+        return endedInQuote;
+    }
+
+    public int length(int column) {
+        return column < fieldCount && fields[column] != null ? lengths[column] : 0;
+    }
+
+    /** Raw UTF-8 bytes of a requested column; only valid until the next record. */
+    public byte[] bytes(int column) {
+        return fields[column];
+    }
+
+    public String text(int column) {
+        int len = length(column);
+        return len == 0 ? "" : new String(fields[column], 0, len, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a decimal number from a requested column without creating a String.
+     * Returns NaN when the field is empty or not a number.
+     */
+    public double number(int column) {
+        int len = length(column);
+        if (len == 0) return Double.NaN;
+        byte[] f = fields[column];
+        int i = 0;
+        boolean negative = false;
+        if (f[i] == '-' || f[i] == '+') {
+            negative = f[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean seenDigit = false;
+        boolean seenPoint = false;
+        for (; i < len; i++) {
+            int c = f[i];
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) digits++;
+                    if (seenPoint) scale--;
+                } else if (!seenPoint) {
+                    scale++;
+                }
+            } else if (c == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!seenDigit) return Double.NaN;
+        if (i < len) {
+            if (f[i] != 'e' && f[i] != 'E') return Double.NaN;
+            int j = i + 1;
+            boolean negativeExp = false;
+            if (j < len && (f[j] == '-' || f[j] == '+')) {
+                negativeExp = f[j] == '-';
+                j++;
+            }
+            if (j == len) return Double.NaN;
+            int exp = 0;
+            for (; j < len; j++) {
+                if (f[j] < '0' || f[j] > '9') return Double.NaN;
+                if (exp < 10000) exp = exp * 10 + (f[j] - '0');
+            }
+            scale += negativeExp ? -exp : exp;
+        }
+        double value;
+        if (digits <= 15 && scale >= -22 && scale <= 22) {
+            // Both operands are exact doubles, so one multiply/divide rounds correctly.
+            value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+        } else {
+            // Syntax is already validated, so this cannot throw.
+            value = Double.parseDouble(new String(f, 0, len, java.nio.charset.StandardCharsets.ISO_8859_1));
+        }
+        return negative ? -value : value;
+    }
+
+    /** Parses a decimal amount as fixed-point hundredths, rounding half up past two places. */
+    public long cents(int column) {
+        int len = length(column);
+        if (len == 0) return NO_VALUE;
+        byte[] f = fields[column];
+        int i = 0;
+        boolean negative = false;
+        if (f[i] == '-' || f[i] == '+') {
+            negative = f[i] == '-';
+            i++;
+        }
+        long whole = 0;
+        int wholeDigits = 0;
+        for (; i < len && f[i] >= '0' && f[i] <= '9'; i++) {
+            if (++wholeDigits > 16) return fromDouble(column);
+            whole = whole * 10 + (f[i] - '0');
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        if (i < len && f[i] == '.') {
+            for (i++; i < len && f[i] >= '0' && f[i] <= '9'; i++) {
+                if (fractionDigits < 2) {
+                    fraction = fraction * 10 + (f[i] - '0');
+                } else if (fractionDigits == 2) {
+                    roundUp = f[i] >= '5';
+                }
+                fractionDigits++;
+            }
+        }
+        if (wholeDigits == 0 && fractionDigits == 0) return NO_VALUE;
+        if (i < len) return fromDouble(column); // exponent or junk
+        if (fractionDigits == 0) fraction *= 100;
+        else if (fractionDigits == 1) fraction *= 10;
+        long cents = whole * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    private long fromDouble(int column) {
+        double value = number(column);
+        return Double.isNaN(value) || Math.abs(value) > 9e16 ? NO_VALUE : Math.round(value * 100);
+    }
+
+    /** Parses a whole number, rounding decimals; NO_VALUE when not a number. */
+    public long longValue(int column) {
+        double value = number(column);
+        return Double.isNaN(value) || Math.abs(value) > 9e18 ? NO_VALUE : Math.round(value);
     }
 
     @Override
-    public Insets getBorderInsets(Component c) {
-        return new Insets(thickness + radius / 2, thickness + radius / 2, thickness + radius / 2, thickness + radius / 2);
+    public void close() throws IOException {
+        if (in != null) in.close();
+    }
+}
+
+/**
+ * CsvExporter writes either the totals of a grouping or every loaded row as CSV.
+ * Output streams through a CsvWriter, so memory is bounded by the sort order
+ * (a couple of primitive arrays per row at most), not by the size of the file.
+ */
+class CsvExporter {
+    enum Order {
+        EARNINGS("Earnings (high to low)"), NAME("Name (A-Z)"), ORIGINAL("File order");
+
+        final String label;
+
+        Order(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * One line per group of the grouping (GameName when empty). Extra columns add the
+     * summed players, tournaments and row counts; splitDimensions writes one column per
+     * dimension instead of the joined label. Returns the number of data lines written.
+     */
+    static long writeTotals(CsvWriter out, EarningsDataset dataset, Set<EarningsCube.Dimension> grouping,
+                            Order order, boolean extraColumns, boolean splitDimensions) throws IOException {
+        EarningsCube.Group group = grouping.isEmpty() ? null : dataset.cube().groupBy(grouping);
+        EarningsTable table = group == null ? dataset.earningsByGame() : group.earnings;
+        long[] players = null, tournaments = null, rows = null;
+        if (extraColumns && group != null) {
+            players = group.players;
+            tournaments = group.tournaments;
+            rows = group.rows;
+        } else if (extraColumns) {
+            int games = dataset.gameNames.size();
+            players = new long[games];
+            tournaments = new long[games];
+            rows = new long[games];
+            for (int row = 0; row < dataset.rowCount; row++) {
+                int game = dataset.gameName[row];
+                players[game] += dataset.playerNo[row];
+                tournaments[game] += dataset.tournamentNo[row];
+                rows[game]++;
+            }
+        }
+
+        if (group == null) {
+            out.field("GameName");
+        } else if (splitDimensions) {
+            for (EarningsCube.Dimension dimension : grouping) out.field(dimension.label);
+        } else {
+            out.field(EarningsCube.label(grouping));
+        }
+        out.field("TotalEarnings");
+        if (extraColumns) {
+            out.field("Players");
+            out.field("Tournaments");
+            out.field("Rows");
+        }
+        out.endRecord();
+
+        int[] sorted = null;
+        if (order == Order.EARNINGS) {
+            RankIndex rank = table.rankIndex();
+            sorted = new int[rank.size()];
+            for (int r = 0; r < sorted.length; r++) sorted[r] = rank.entryAt(r);
+        } else if (order == Order.NAME) {
+            sorted = sortByKey(nameRanks(table));
+        }
+        int size = table.size();
+        for (int i = 0; i < size; i++) {
+            int entry = sorted == null ? i : sorted[i];
+            if (group != null && splitDimensions) {
+                for (String part : group.parts[entry]) out.field(part);
+            } else {
+                out.field(table.keyAt(entry));
+            }
+            out.cents(group != null ? group.moneyCents[entry] : Math.round(table.valueAt(entry) * 100));
+            if (extraColumns) {
+                out.field(players[entry]);
+                out.field(tournaments[entry]);
+                out.field(rows[entry]);
+            }
+            out.endRecord();
+        }
+        return size;
+    }
+
+    /** Every loaded row with the columns of the input file. Returns the number of data lines written. */
+    static long writeRows(CsvWriter out, EarningsDataset dataset, Order order) throws IOException {
+        for (String header : new String[] {"IdNo", "TotalMoney", "GameName", "Genre", "PlayerNo",
+                "TournamentNo", "Top_Country", "Top_Country_Earnings", "Releaseyear"}) {
+            out.field(header);
+        }
+        out.endRecord();
+
+        int n = dataset.rowCount;
+        int[] sorted = null;
+        if (order != Order.ORIGINAL) {
+            long[] keys = new long[n];
+            if (order == Order.EARNINGS) {
+                for (int row = 0; row < n; row++) keys[row] = -dataset.totalMoneyCents[row];
+            } else {
+                long[] gameRanks = nameRanks(dataset.earningsByGame());
+                for (int row = 0; row < n; row++) keys[row] = gameRanks[dataset.gameName[row]];
+            }
+            sorted = sortByKey(keys);
+        }
+        for (int i = 0; i < n; i++) {
+            int row = sorted == null ? i : sorted[i];
+            out.field(dataset.idNo[row]);
+            out.cents(dataset.totalMoneyCents[row]);
+            out.field(dataset.gameNames.get(dataset.gameName[row]));
+            out.field(dataset.genres.get(dataset.genre[row]));
+            out.field(dataset.playerNo[row]);
+            out.field(dataset.tournamentNo[row]);
+            out.field(dataset.countries.get(dataset.topCountry[row]));
+            out.cents(dataset.topCountryEarningsCents[row]);
+            if (dataset.releaseYear[row] == 0) out.field("");
+            else out.field(dataset.releaseYear[row]);
+            out.endRecord();
+        }
+        return n;
+    }
+
+    // nameRanks[i] = position of table key i in case-insensitive name order.
+    private static long[] nameRanks(EarningsTable table) {
+        Integer[] byName = new Integer[table.size()];
+        for (int i = 0; i < byName.length; i++) byName[i] = i;
+        Arrays.sort(byName, (a, b) -> {
+            int c = String.CASE_INSENSITIVE_ORDER.compare(table.keyAt(a), table.keyAt(b));
+            return c != 0 ? c : table.keyAt(a).compareTo(table.keyAt(b));
+        });
+        long[] ranks = new long[byName.length];
+        for (int r = 0; r < byName.length; r++) ranks[byName[r]] = r;
+        return ranks;
+    }
+
+    // Indices ordered by ascending key; stable, so ties keep file order.
+    private static int[] sortByKey(long[] keys) {
+        return EarningsTable.sortIndices(keys.length, (a, b) -> Long.compare(keys[a], keys[b]));
+    }
+}
+
+/**
+ * CsvWriter is the output counterpart of CsvTokenizer: RFC 4180 records encoded
+ * straight into one reusable byte buffer and drained to a file channel, or through
+ * gzip when the target is compressed. Fields are quoted only when they contain a
+ * comma, quote or line break; numbers are formatted without temporary strings.
+ */
+class CsvWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream stream;
+    private final java.nio.channels.WritableByteChannel channel;
+    private final java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private boolean firstField = true;
+
+    CsvWriter(File file, boolean gzip) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        if (gzip) {
+            stream = new java.util.zip.GZIPOutputStream(out, BUFFER_SIZE);
+            channel = java.nio.channels.Channels.newChannel(stream);
+        } else {
+            stream = out;
+            channel = out.getChannel();
+        }
+    }
+
+    void field(String value) throws IOException {
+        separator();
+        boolean quote = false;
+        boolean ascii = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') quote = true;
+            else if (c >= 0x80) ascii = false;
+        }
+        if (quote) put((byte) '"');
+        if (ascii) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') put((byte) '"');
+                put((byte) c);
+            }
+        } else {
+            for (byte b : value.getBytes(java.nio.charset.StandardCharsets.UTF_8)) {
+                if (b == '"') put((byte) '"');
+                put(b);
+            }
+        }
+        if (quote) put((byte) '"');
+    }
+
+    void field(long value) throws IOException {
+        separator();
+        putLong(value);
+    }
+
+    /** Writes cents as a decimal amount with two places, e.g. 12345 as 123.45. */
+    void cents(long cents) throws IOException {
+        separator();
+        if (cents < 0) {
+            put((byte) '-');
+            cents = -cents;
+        }
+        putLong(cents / 100);
+        long fraction = cents % 100;
+        put((byte) '.');
+        put((byte) ('0' + fraction / 10));
+        put((byte) ('0' + fraction % 10));
+    }
+
+    void endRecord() throws IOException {
+        put((byte) '\r');
+        put((byte) '\n');
+        firstField = true;
+    }
+
+    private void separator() throws IOException {
+        if (!firstField) put((byte) ',');
+        firstField = false;
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value; // Long.MIN_VALUE never reaches here; callers write counts and cents
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) put(digits[--n]);
+    }
+
+    private void put(byte b) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put(b);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
     }
 
     @Override
-    public Insets getBorderInsets(Component c, Insets insets) {
-        insets.left = insets.top = insets.right = insets.bottom = thickness + radius / 2;
-        return insets;
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            stream.close();
+        }
     }
 }
@@ -5,6 +5,12 @@ let showOthers = false; // false: grouped mode; true: threshold mode
 let maxDisplay = 10;    // For grouped mode: number of top entries
 let threshold = 0;      // For threshold mode: monetary threshold
 
+// Base URL of the Java analyzer's server (open index.html?server=http://127.0.0.1:8080).
+// When set, the page fetches the filtered view instead of parsing CSV files itself.
+const apiBase = new URLSearchParams(location.search).get('server');
+let serverView = null;  // Last /api/earnings response
+let pendingFetch = null; // AbortController of the request in flight
+
 /**
  * Format a number as US currency.
  * @param {number} num 
@@ -77,12 +83,59 @@ function getFilteredData(dataMap) {
   }
 }
 
+/**
+ * The map to chart: the server's filtered view when backed by the server,
+ * otherwise the local earningsMap filtered in the browser.
+ * @returns {Object}
+ */
+function currentView() {
+  if (apiBase) {
+    return serverView ? Object.fromEntries(serverView.entries.map(e => [e.label, e.value])) : {};
+  }
+  return getFilteredData(earningsMap);
+}
+
+/**
+ * Fetches the view for the current filter settings from the server. The browser
+ * revalidates with the ETag, so an unchanged dataset costs a 304 and no body.
+ * @returns {Promise<void>}
+ */
+function fetchServerView() {
+  if (pendingFetch) pendingFetch.abort();
+  pendingFetch = new AbortController();
+  const query = showOthers ? `threshold=${threshold}` : `top=${maxDisplay}`;
+  return fetch(`${apiBase}/api/earnings?${query}`, { signal: pendingFetch.signal })
+    .then(response => response.json().then(body => {
+      if (!response.ok) throw new Error(body.error || response.statusText);
+      serverView = body;
+    }));
+}
+
+/**
+ * Redraws the summary and chart, fetching the view first when backed by the server.
+ */
+function refresh() {
+  if (!apiBase) {
+    updateSummary();
+    updateChart();
+    return;
+  }
+  fetchServerView()
+    .then(() => {
+      updateSummary();
+      updateChart();
+    })
+    .catch(error => {
+      if (error.name !== 'AbortError') showError('Server request failed: ' + error.message);
+    });
+}
+
 /**
  * Updates the summary text with aggregated earnings details.
  */
 function updateSummary() {
   const summaryEl = document.getElementById('summaryText');
-  const filteredData = getFilteredData(earningsMap);
+  const filteredData = currentView();
   const entries = Object.entries(filteredData);
   if (entries.length === 0) {
     summaryEl.textContent = 'No valid data found.';
@@ -104,7 +157,7 @@ function updateSummary() {
  */
 function updateChart() {
   const ctx = document.getElementById('esportsChart').getContext('2d');
-  const filteredData = getFilteredData(earningsMap);
+  const filteredData = currentView();
   const labels = Object.keys(filteredData);
   const data = Object.values(filteredData);
   
@@ -184,6 +237,10 @@ function showError(msg) {
  * Handles CSV file import.
  */
 document.getElementById('importBtn').addEventListener('click', () => {
+  if (apiBase) {
+    showError('Data comes from the analyzer server; load files there instead.');
+    return;
+  }
   document.getElementById('fileInput').click();
 });
 
@@ -296,7 +353,7 @@ document.getElementById('toggleOthersBtn').addEventListener('click', () => {
   if (showOthers) {
     document.getElementById('toggleOthersBtn').textContent = 'Hide Others';
     document.getElementById('manualThreshold').classList.remove('hidden');
-    const newMax = computeThresholdSliderMax(earningsMap);
+    const newMax = apiBase ? (serverView ? serverView.max : 1000) : computeThresholdSliderMax(earningsMap);
     document.getElementById('topNSlider').max = newMax;
     threshold = newMax / 2;
     document.getElementById('topNSlider').value = threshold;
@@ -310,8 +367,7 @@ document.getElementById('toggleOthersBtn').addEventListener('click', () => {
     maxDisplay = 10;
     document.getElementById('topNValue').textContent = maxDisplay;
   }
-  updateSummary();
-  updateChart();
+  refresh();
 });
 
 /**
@@ -328,8 +384,7 @@ document.getElementById('topNSlider').addEventListener('input', (e) => {
     maxDisplay = parseInt(e.target.value, 10);
     document.getElementById('topNValue').textContent = maxDisplay;
   }
-  updateSummary();
-  updateChart();
+  refresh();
 });
 
 /**
@@ -343,6 +398,8 @@ document.getElementById('thresholdInput').addEventListener('change', (e) => {
   threshold = val;
   document.getElementById('topNSlider').value = threshold;
   document.getElementById('topNValue').textContent = formatCurrency(threshold);
-  updateSummary();
-  updateChart();
+  refresh();
 });
+
+// Backed by the server: show its data as soon as the page opens.
+if (apiBase) refresh();
@@ -0,0 +1,187 @@
+package bench;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bridge to the application classes. They live in the unnamed package, which code in a
+ * named package cannot refer to, and JMH does not allow benchmarks in the unnamed
+ * package. Handles are resolved once into static finals, which the JIT treats as
+ * constants, so calling through them costs next to nothing next to the work measured.
+ * Application types appear here as Object.
+ */
+final class App {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    static final Class<?> ANALYZER = type("EsportEarningsAnalyzer");
+    static final Class<?> LOADER = type("EarningsLoader");
+    static final Class<?> PROGRESS = type("EarningsLoader$Progress");
+    static final Class<?> DATASET = type("EarningsDataset");
+    static final Class<?> TABLE = type("EarningsTable");
+    static final Class<?> CUBE = type("EarningsCube");
+    static final Class<?> GROUP = type("EarningsCube$Group");
+    static final Class<?> SKETCH = type("EarningsSketch");
+    static final Class<?> DIMENSION = type("EarningsCube$Dimension");
+    static final Class<?> FILTER_QUERY = type("EsportEarningsAnalyzer$FilterQuery");
+    static final Class<?> VIEW_MODEL = type("EsportEarningsAnalyzer$ChartViewModel");
+    static final Class<?> DONUT = type("EsportEarningsAnalyzer$DonutChartPanel");
+    static final Class<?> CSV_WRITER = type("CsvWriter");
+    static final Class<?> CSV_EXPORTER = type("CsvExporter");
+    static final Class<?> ORDER = type("CsvExporter$Order");
+
+    /** (File, progress) -> dataset */
+    static final MethodHandle LOAD = method(LOADER, "load", File.class, PROGRESS);
+    static final MethodHandle LOAD_SEQUENTIAL = method(LOADER, "loadSequential", File.class, PROGRESS);
+    /** (dataset) -> void */
+    static final MethodHandle BUILD_AGGREGATES = method(DATASET, "buildAggregates");
+    /** (dataset) -> table */
+    static final MethodHandle EARNINGS_BY_GAME = method(DATASET, "earningsByGame");
+    /** (dataset) -> cube */
+    static final MethodHandle CUBE_OF = method(DATASET, "cube");
+    /** (cube, Set) -> group */
+    static final MethodHandle GROUP_BY = method(CUBE, "groupBy", Set.class);
+    /** (table, showOthers, maxDisplay, threshold) -> Map */
+    static final MethodHandle GET_FILTERED_DATA = method(ANALYZER, "getFilteredData",
+            TABLE, boolean.class, int.class, double.class);
+    /** (query) -> view model */
+    static final MethodHandle BUILD_VIEW_MODEL = method(ANALYZER, "buildViewModel", FILTER_QUERY);
+    /** (Graphics2D, width, height, title, entries, total, colors) -> void */
+    static final MethodHandle PAINT_TO_IMAGE = method(DONUT, "paintToImage",
+            Graphics2D.class, int.class, int.class, String.class, List.class, double.class, Color[].class);
+    /** (File, gzip) -> writer */
+    static final MethodHandle NEW_CSV_WRITER = constructor(CSV_WRITER, File.class, boolean.class);
+    static final MethodHandle CLOSE_CSV_WRITER = method(CSV_WRITER, "close");
+    /** (writer, dataset, Set, order, extraColumns, splitDimensions) -> long */
+    static final MethodHandle WRITE_TOTALS = method(CSV_EXPORTER, "writeTotals",
+            CSV_WRITER, DATASET, Set.class, ORDER, boolean.class, boolean.class);
+    /** (writer, dataset, order) -> long */
+    static final MethodHandle WRITE_ROWS = method(CSV_EXPORTER, "writeRows", CSV_WRITER, DATASET, ORDER);
+
+    static final Color[] CHART_COLORS = (Color[]) staticField(ANALYZER, "CHART_COLORS");
+
+    /** A loader progress callback that never reports or cancels. */
+    static final Object QUIET_PROGRESS = Proxy.newProxyInstance(PROGRESS.getClassLoader(), new Class<?>[] {PROGRESS},
+            (proxy, method, args) -> method.getReturnType() == boolean.class ? Boolean.FALSE : null);
+
+    private App() {
+    }
+
+    static Object loadDataset(File file) throws Throwable {
+        Object dataset = (Object) LOAD.invokeExact(file, QUIET_PROGRESS);
+        BUILD_AGGREGATES.invokeExact(dataset);
+        return dataset;
+    }
+
+    static Object group(Object dataset, Set<?> dimensions) throws Throwable {
+        Object cube = (Object) CUBE_OF.invokeExact(dataset);
+        return (Object) GROUP_BY.invokeExact(cube, (Set) dimensions);
+    }
+
+    static Object groupEarnings(Object group) {
+        return fieldValue(group, "earnings");
+    }
+
+    static Set<?> dimensions(String... names) {
+        return enumSet(DIMENSION, names);
+    }
+
+    static Object order(String name) {
+        return enumValue(ORDER, name);
+    }
+
+    static Object filterQuery(Object table, Object group, String groupingLabel, boolean showOthers,
+                              int maxDisplay, double threshold, long rowCount) throws ReflectiveOperationException {
+        Constructor<?> constructor = accessible(FILTER_QUERY.getDeclaredConstructor(TABLE, GROUP, String.class,
+                String.class, boolean.class, int.class, double.class, long.class, long.class, String.class, SKETCH,
+                int.class, boolean.class));
+        return constructor.newInstance(table, group, groupingLabel, "Total Money Distribution per " + groupingLabel,
+                showOthers, maxDisplay, threshold, rowCount, 0L, "", null, 0, false);
+    }
+
+    static Object fieldValue(Object target, String name) {
+        try {
+            return accessible(target.getClass().getDeclaredField(name)).get(target);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Set<?> enumSet(Class<?> type, String... names) {
+        Set set = java.util.EnumSet.noneOf((Class) type);
+        for (String name : names) set.add(enumValue(type, name));
+        return set;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+
+    private static Class<?> type(String name) {
+        try {
+            return Class.forName(name, false, App.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Application class missing from the classpath: " + name, e);
+        }
+    }
+
+    // Erases application types to Object so callers can use invokeExact without naming them.
+    private static MethodHandle method(Class<?> owner, String name, Class<?>... parameters) {
+        try {
+            Method method = accessible(owner.getDeclaredMethod(name, parameters));
+            MethodHandle handle = LOOKUP.unreflect(method);
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot bind " + owner.getName() + "." + name, e);
+        }
+    }
+
+    private static MethodHandle constructor(Class<?> owner, Class<?>... parameters) {
+        try {
+            MethodHandle handle = LOOKUP.unreflectConstructor(accessible(owner.getDeclaredConstructor(parameters)));
+            return handle.asType(erase(handle.type()));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot bind new " + owner.getName(), e);
+        }
+    }
+
+    private static Object staticField(Class<?> owner, String name) {
+        try {
+            Field field = accessible(owner.getDeclaredField(name));
+            return field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodType erase(MethodType type) {
+        for (int i = 0; i < type.parameterCount(); i++) {
+            Class<?> parameter = type.parameterType(i);
+            if (!parameter.isPrimitive() && isApplicationType(parameter)) type = type.changeParameterType(i, Object.class);
+        }
+        if (isApplicationType(type.returnType())) type = type.changeReturnType(Object.class);
+        return type;
+    }
+
+    private static boolean isApplicationType(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+
+    private static <T extends AccessibleObject> T accessible(T member) {
+        member.setAccessible(true);
+        return member;
+    }
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line, but unless told
+ * otherwise writes results as JSON to jmh-result.json and runs the GC profiler, so each
+ * run records throughput and allocation rate (gc.alloc.rate.norm) for comparison
+ * across versions.
+ *
+ * <pre>
+ * mvn -B package
+ * java -jar benchmarks/target/benchmarks.jar                          # everything
+ * java -jar benchmarks/target/benchmarks.jar Parse -p rows=10000000   # one class, bigger input
+ * java -jar benchmarks/target/benchmarks.jar -rff baseline.json       # named result file
+ * </pre>
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) {
+            cli.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cli);
+        if (!cli.getResultFormat().hasValue()) options.resultFormat(ResultFormatType.JSON);
+        if (!cli.getResult().hasValue()) options.result("jmh-result.json");
+        if (cli.getProfilers().isEmpty()) options.addProfiler(GCProfiler.class);
+        Runner runner = new Runner(options.build());
+        if (cli.shouldList()) runner.list();
+        else runner.run();
+    }
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/** CSV export of grouped totals and of every row, through CsvWriter to a temporary file. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    @Param({"EARNINGS", "ORIGINAL"})
+    public String order;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private Object dataset;
+    private Object sortOrder;
+    private Set<?> genreAndYear;
+    private File out;
+
+    @Setup
+    public void setUp() throws Throwable {
+        dataset = App.loadDataset(SyntheticData.file(rows));
+        sortOrder = App.order(order);
+        genreAndYear = App.dimensions("GENRE", "RELEASE_YEAR");
+        out = File.createTempFile("export-", gzip ? ".csv.gz" : ".csv");
+    }
+
+    @TearDown
+    public void tearDown() {
+        out.delete();
+    }
+
+    @Benchmark
+    public long totals() throws Throwable {
+        Object writer = (Object) App.NEW_CSV_WRITER.invokeExact(out, gzip);
+        try {
+            return (long) App.WRITE_TOTALS.invokeExact(writer, dataset, (Set) genreAndYear, sortOrder, true, true);
+        } finally {
+            App.CLOSE_CSV_WRITER.invokeExact(writer);
+        }
+    }
+
+    @Benchmark
+    public long allRows() throws Throwable {
+        Object writer = (Object) App.NEW_CSV_WRITER.invokeExact(out, gzip);
+        try {
+            return (long) App.WRITE_ROWS.invokeExact(writer, dataset, sortOrder);
+        } finally {
+            App.CLOSE_CSV_WRITER.invokeExact(writer);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getFilteredData in Top-N and threshold mode, and buildViewModel, which adds the
+ * summary text, over the per-game table and a cube grouping.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+    @Param({"10000", "1000000"})
+    public long rows;
+
+    /** "game" for the per-game table, otherwise a cube grouping. */
+    @Param({"game", "genre+country"})
+    public String grouping;
+
+    private Object table;
+    private double threshold;
+    private Object topNQuery;
+    private Object thresholdQuery;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Object dataset = App.loadDataset(SyntheticData.file(rows));
+        Object group = null;
+        String label = "Esports Title";
+        if (grouping.equals("game")) {
+            table = (Object) App.EARNINGS_BY_GAME.invokeExact(dataset);
+        } else {
+            group = App.group(dataset, App.dimensions("GENRE", "TOP_COUNTRY"));
+            table = App.groupEarnings(group);
+            label = "Genre + Top Country";
+        }
+        // A median-ish threshold so the 200-slice cap and the "Other" bucket both come into play.
+        Map<?, ?> all = (Map<?, ?>) App.GET_FILTERED_DATA.invokeExact(table, true, 0, 0.0);
+        threshold = all.values().stream().mapToDouble(v -> (Double) v).sorted().skip(all.size() / 2).findFirst().orElse(0);
+        long rowCount = (Integer) App.fieldValue(dataset, "rowCount");
+        topNQuery = App.filterQuery(table, group, label, false, 10, 0, rowCount);
+        thresholdQuery = App.filterQuery(table, group, label, true, 10, threshold, rowCount);
+    }
+
+    @Benchmark
+    public Object topN() throws Throwable {
+        return (Map<?, ?>) App.GET_FILTERED_DATA.invokeExact(table, false, 10, 0.0);
+    }
+
+    @Benchmark
+    public Object threshold() throws Throwable {
+        return (Map<?, ?>) App.GET_FILTERED_DATA.invokeExact(table, true, 10, threshold);
+    }
+
+    @Benchmark
+    public Object viewModelTopN() throws Throwable {
+        return (Object) App.BUILD_VIEW_MODEL.invokeExact(topNQuery);
+    }
+
+    @Benchmark
+    public Object viewModelThreshold() throws Throwable {
+        return (Object) App.BUILD_VIEW_MODEL.invokeExact(thresholdQuery);
+    }
+}
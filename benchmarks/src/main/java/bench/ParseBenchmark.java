@@ -0,0 +1,54 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/** Parsing a CSV into a dataset, as a file load does before the chart is built. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public long rows;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws Exception {
+        file = SyntheticData.file(rows);
+    }
+
+    @Benchmark
+    public Object sequential() throws Throwable {
+        return (Object) App.LOAD_SEQUENTIAL.invokeExact(file, App.QUIET_PROGRESS);
+    }
+
+    /** Chunked parallel parse; files under 8 MB fall back to sequential, as in the app. */
+    @Benchmark
+    public Object parallel() throws Throwable {
+        return (Object) App.LOAD.invokeExact(file, App.QUIET_PROGRESS);
+    }
+
+    /** Parse plus every grouping and rank index, i.e. the whole background part of a load. */
+    @Benchmark
+    public Object parseAndAggregate() throws Throwable {
+        Object dataset = (Object) App.LOAD.invokeExact(file, App.QUIET_PROGRESS);
+        App.BUILD_AGGREGATES.invokeExact(dataset);
+        return dataset;
+    }
+}
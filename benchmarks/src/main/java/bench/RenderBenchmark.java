@@ -0,0 +1,64 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** DonutChartPanel.paintToImage into an offscreen image, the export and batch-mode renderer. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    @Param({"800x600", "3300x2475"})
+    public String size;
+
+    @Param({"11", "201"})
+    public int slices;
+
+    private BufferedImage image;
+    private List<Map.Entry<String, Double>> entries;
+    private double total;
+
+    @Setup
+    public void setUp() {
+        String[] parts = size.split("x");
+        image = new BufferedImage(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), BufferedImage.TYPE_INT_RGB);
+        entries = new ArrayList<>();
+        for (int i = 0; i < slices; i++) {
+            double value = 1_000_000.0 / (i + 1);
+            entries.add(new AbstractMap.SimpleImmutableEntry<>("Game " + i, value));
+            total += value;
+        }
+    }
+
+    @Benchmark
+    public BufferedImage paintToImage() throws Throwable {
+        Graphics2D g2d = image.createGraphics();
+        try {
+            App.PAINT_TO_IMAGE.invokeExact(g2d, image.getWidth(), image.getHeight(),
+                    "Total Money Distribution per Esports Title", entries, total, App.CHART_COLORS);
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+}
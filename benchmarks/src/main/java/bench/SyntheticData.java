@@ -0,0 +1,126 @@
+package bench;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Generates CSV files with the schema of the bundled ESport_Earnings(in).csv at any scale
+ * (10^4 to 10^8 rows). Output is deterministic for a given row count and seed. Earnings
+ * follow a heavy-tailed distribution and a few games dominate, as in the real data. The
+ * number of distinct games grows with the row count, so the dictionaries and group
+ * tables scale as well as the columns.
+ *
+ * <pre>java -cp benchmarks.jar bench.SyntheticData &lt;rows&gt; &lt;out.csv&gt; [seed]</pre>
+ */
+public final class SyntheticData {
+    static final String HEADER =
+            "IdNo,TotalMoney,GameName,Genre,PlayerNo,TournamentNo,Top_Country,Top_Country_Earnings,Releaseyear";
+
+    // {GameName, Genre, Releaseyear}, the shape of the bundled file's biggest titles
+    private static final String[][] GAMES = {
+            {"Dota 2", "Multiplayer Online Battle Arena", "2013"},
+            {"Counter-Strike: Global Offensive", "First-Person Shooter", "2012"},
+            {"Fortnite", "Battle Royale", "2017"},
+            {"League of Legends", "Multiplayer Online Battle Arena", "2009"},
+            {"StarCraft II", "Strategy", "2010"},
+            {"Overwatch", "First-Person Shooter", "2016"},
+            {"PLAYERUNKNOWN'S BATTLEGROUNDS", "Battle Royale", "2017"},
+            {"Hearthstone", "Collectible Card Game", "2014"},
+            {"Heroes of the Storm", "Multiplayer Online Battle Arena", "2015"},
+            {"Call of Duty: Black Ops 4", "First-Person Shooter", "2018"},
+            {"Rocket League", "Sports", "2015"},
+            {"Super Smash Bros. Melee", "Fighting Game", "2001"},
+            {"Street Fighter V", "Fighting Game", "2016"},
+            {"FIFA 19", "Sports", "2018"},
+            {"Gran Turismo Sport", "Racing", "2017"},
+            {"Tetris", "Puzzle Game", ""},
+            {"Magic: The Gathering Arena", "Collectible Card Game", "2019"},
+            {"Rainbow Six Siege", "First-Person Shooter", "2015"},
+    };
+    private static final String[] COUNTRIES = {
+            "United States", "China", "Korea, Republic of", "Sweden", "Denmark", "Russian Federation",
+            "Brazil", "Germany", "France", "Finland", "Canada", "Japan", "None"
+    };
+
+    private SyntheticData() {
+    }
+
+    /** Returns a cached file of the given size, generating it on first use. */
+    static File file(long rows) throws IOException {
+        File dir = new File(System.getProperty("bench.dataDir",
+                System.getProperty("java.io.tmpdir") + File.separator + "esports-earnings-bench"));
+        File file = new File(dir, "earnings-" + rows + ".csv");
+        if (!file.isFile()) {
+            if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            File temp = File.createTempFile("earnings-", ".tmp", dir);
+            try {
+                write(temp, rows, 42);
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                temp.delete();
+            }
+        }
+        return file;
+    }
+
+    static void write(File file, long rows, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        // Distinct games grow with the data: about one per 20 rows, capped at 200k.
+        long games = Math.max(GAMES.length, Math.min(rows / 20, 200_000));
+        StringBuilder line = new StringBuilder(160);
+        try (BufferedWriter out = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8), 1 << 20)) {
+            out.write(HEADER);
+            out.write('\n');
+            for (long id = 1; id <= rows; id++) {
+                double u = random.nextDouble();
+                long game = (long) (games * u * u * u); // skewed towards the first games
+                String[] template = GAMES[(int) (game % GAMES.length)];
+                long edition = game / GAMES.length;
+                long cents = (long) (10_000 * Math.pow(1 - random.nextDouble(), -1.2)); // heavy tail
+                long countryCents = (long) (cents * (0.2 + 0.6 * random.nextDouble()));
+                String country = COUNTRIES[(int) (COUNTRIES.length * Math.pow(random.nextDouble(), 2))];
+
+                line.setLength(0);
+                line.append(id).append(',');
+                appendMoney(line, cents).append(',');
+                line.append(template[0]);
+                if (edition > 0) line.append(' ').append(edition + 1);
+                line.append(',').append(template[1]).append(',');
+                line.append(1 + random.nextInt(5000)).append(',');
+                line.append(1 + random.nextInt(2000)).append(',');
+                if (country.indexOf(',') >= 0) line.append('"').append(country).append('"');
+                else line.append(country);
+                line.append(',');
+                appendMoney(line, countryCents).append(',');
+                line.append(template[2]).append('\n');
+                out.append(line);
+            }
+        }
+    }
+
+    private static StringBuilder appendMoney(StringBuilder line, long cents) {
+        line.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) line.append('0');
+        return line.append(fraction);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp benchmarks.jar bench.SyntheticData <rows> <out.csv> [seed]");
+            System.exit(2);
+        }
+        long rows = Long.parseLong(args[0]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42;
+        long start = System.nanoTime();
+        write(new File(args[1]), rows, seed);
+        System.out.printf("%,d rows written to %s in %.1f s%n", rows, args[1], (System.nanoTime() - start) / 1e9);
+    }
+}